@@ -0,0 +1,42 @@
+package com.example.worldpay.benchmark;
+
+import com.example.worldpay.model.Offer;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExpiryBenchmark {
+
+  private Offer offer;
+
+  @Setup
+  public void setUp() {
+    offer = Offers.loaded(1);
+  }
+
+  @Benchmark
+  public boolean isExpired() {
+    return offer.isExpired();
+  }
+
+  @Benchmark
+  public boolean isActive() {
+    return offer.isActive();
+  }
+
+  // the calculation isExpired() did before expiresAt was persisted, as a baseline
+  @Benchmark
+  public boolean fromDuration() {
+    return LocalDateTime
+        .ofInstant(offer.getCreatedAt(), UTC)
+        .plus(offer.getDuration())
+        .isBefore(LocalDateTime.now(UTC));
+  }
+
+}
@@ -0,0 +1,40 @@
+package com.example.worldpay.benchmark;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferSummary;
+import com.example.worldpay.model.Price;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.Currency;
+
+import static java.time.ZoneOffset.UTC;
+
+final class Offers {
+
+  private Offers() {
+  }
+
+  static Offer unsaved() {
+    return new Offer("A reasonably typical offer description", new Price(Currency.getInstance("GBP"), new BigDecimal("19.99")),
+        Period.ofMonths(3), false);
+  }
+
+  // what the repository would return, without needing one
+  static Offer loaded(long offerId) {
+    Offer offer = unsaved();
+    offer.setOfferId(offerId);
+    offer.setCreatedAt(Instant.now());
+    offer.setExpiresAt(LocalDateTime.ofInstant(offer.getCreatedAt(), UTC).plus(offer.getDuration()).toInstant(UTC));
+    return offer;
+  }
+
+  static OfferSummary summary(Offer offer) {
+    return new OfferSummary(offer.getOfferId(), offer.getVersion(), offer.getDescription(),
+        offer.getPrice().getCurrency(), offer.getPrice().getValue(), offer.getDuration(), offer.isCancelled(),
+        offer.getExpiresAt());
+  }
+
+}
@@ -0,0 +1,62 @@
+package com.example.worldpay.benchmark;
+
+import com.example.worldpay.WorldpayApplication;
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.repository.OffersRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// against the embedded H2 database, through the whole Spring Data/Hibernate stack
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryBenchmark {
+
+  @Param("10000")
+  private int offers;
+
+  @Param("20")
+  private int pageSize;
+
+  private ConfigurableApplicationContext context;
+  private OffersRepository repository;
+
+  @Setup
+  public void setUp() {
+    context = new SpringApplicationBuilder(WorldpayApplication.class)
+        .properties("server.port=0", "logging.level.root=WARN")
+        .run();
+    repository = context.getBean(OffersRepository.class);
+    repository.saveAll(LongStream.range(0, offers).mapToObj(ii -> Offers.unsaved()).collect(Collectors.toList()));
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Offer save() {
+    return repository.save(Offers.unsaved());
+  }
+
+  @Benchmark
+  public Optional<Offer> findById() {
+    return repository.findById(ThreadLocalRandom.current().nextLong(1, offers + 1));
+  }
+
+  @Benchmark
+  public Page<Offer> findAll() {
+    return repository.findAll(PageRequest.of(ThreadLocalRandom.current().nextInt(offers / pageSize), pageSize));
+  }
+
+}
@@ -0,0 +1,194 @@
+package com.example.worldpay.benchmark;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.controller.CompactHttpMessageConverter;
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferSummary;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.service.OfferSummaryRenderer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.PagedResources.PageMetadata;
+import org.springframework.hateoas.core.DefaultRelProvider;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.hateoas.hal.Jackson2HalModule.HalHandlerInstantiator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+
+  private ObjectWriter offerWriter;
+  private ObjectWriter priceWriter;
+  private Offer offer;
+  private Price price;
+  private OfferSummaryRenderer renderer;
+  private OfferSummary summary;
+  private ObjectWriter pageWriter;
+  private CompactHttpMessageConverter compactJson;
+  private CompactHttpMessageConverter smile;
+  private CompactHttpMessageConverter cbor;
+  private PagedResources<Offer> page;
+
+  @Setup
+  public void setUp() throws IOException {
+    // as close to Spring Data REST's HAL mapper as possible without a running application
+    ObjectMapper mapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .registerModule(new Jackson2HalModule());
+    mapper.setHandlerInstantiator(new HalHandlerInstantiator(new DefaultRelProvider(), null, null));
+    offerWriter = mapper.writerFor(Offer.class);
+    priceWriter = mapper.writerFor(Price.class);
+
+    offer = Offers.loaded(1);
+    offer.add(new Link("http://localhost/offers/1"));
+    price = offer.getPrice();
+
+    ObjectMapper plain = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    renderer = new OfferSummaryRenderer(plain, new WorldpayProperties(), new SimpleMeterRegistry());
+    summary = Offers.summary(offer);
+
+    // a default-sized page of /offers, in HAL and in each compact format
+    List<Offer> offers = new ArrayList<>();
+    for (long offerId = 1; offerId <= 20; offerId++) {
+      Offer loaded = Offers.loaded(offerId);
+      loaded.add(new Link("http://localhost/offers/" + offerId));
+      loaded.add(new Link("http://localhost/offers/" + offerId, "offer"));
+      offers.add(loaded);
+    }
+    page = new PagedResources<>(offers, new PageMetadata(20, 0, 1000),
+        new Link("http://localhost/offers?page=0&size=20"), new Link("http://localhost/offers?page=1&size=20", Link.REL_NEXT));
+    pageWriter = mapper.writerFor(PagedResources.class);
+    MappingJackson2HttpMessageConverter hal = new MappingJackson2HttpMessageConverter(mapper);
+    hal.setSupportedMediaTypes(Collections.singletonList(MediaTypes.HAL_JSON));
+    compactJson = new CompactHttpMessageConverter(hal, new JsonFactory(),
+        MediaType.valueOf(CompactHttpMessageConverter.COMPACT_JSON_VALUE));
+    smile = new CompactHttpMessageConverter(hal, new SmileFactory(), MediaType.valueOf(CompactHttpMessageConverter.SMILE_VALUE));
+    cbor = new CompactHttpMessageConverter(hal, new CBORFactory(), MediaType.valueOf(CompactHttpMessageConverter.CBOR_VALUE));
+  }
+
+  // The page's size in each format, in bytes, reported as secondary results of pageBytes(). JMH adds event counters
+  // up over iterations and threads, so each thread only records them in its first measurement iteration.
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class PageBytes {
+
+    public long hal;
+    public long compactJson;
+    public long smile;
+    public long cbor;
+
+    private boolean recording;
+    private boolean recorded;
+
+    @Setup(Level.Iteration)
+    public void reset(IterationParams iteration) {
+      hal = compactJson = smile = cbor = 0;
+      recording = !recorded && iteration.getType() == IterationType.MEASUREMENT;
+      recorded |= recording;
+    }
+
+  }
+
+  private static byte[] write(CompactHttpMessageConverter converter, Object value) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+    converter.write(value, null, new HttpOutputMessage() {
+      private final HttpHeaders headers = new HttpHeaders();
+
+      @Override
+      public OutputStream getBody() {
+        return body;
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return headers;
+      }
+    });
+    return body.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] offer() throws IOException {
+    return offerWriter.writeValueAsBytes(offer);
+  }
+
+  // the /offers?projection=summary equivalent of offer(), with its fragment cached after the first call
+  @Benchmark
+  public String summary() {
+    return renderer.render(summary, "http://localhost/offers", Instant.now());
+  }
+
+  @Benchmark
+  public byte[] price() throws IOException {
+    return priceWriter.writeValueAsBytes(price);
+  }
+
+  @Benchmark
+  public byte[] page() throws IOException {
+    return pageWriter.writeValueAsBytes(page);
+  }
+
+  @Benchmark
+  public byte[] compactJsonPage() throws IOException {
+    return write(compactJson, page);
+  }
+
+  @Benchmark
+  public byte[] smilePage() throws IOException {
+    return write(smile, page);
+  }
+
+  @Benchmark
+  public byte[] cborPage() throws IOException {
+    return write(cbor, page);
+  }
+
+  // its time is the four above together; what it's for is the sizes
+  @Benchmark
+  public void pageBytes(PageBytes bytes, Blackhole blackhole) throws IOException {
+    byte[] hal = page();
+    byte[] compactJson = compactJsonPage();
+    byte[] smile = smilePage();
+    byte[] cbor = cborPage();
+    if (bytes.recording) {
+      bytes.hal = hal.length;
+      bytes.compactJson = compactJson.length;
+      bytes.smile = smile.length;
+      bytes.cbor = cbor.length;
+    }
+    blackhole.consume(hal);
+    blackhole.consume(compactJson);
+    blackhole.consume(smile);
+    blackhole.consume(cbor);
+  }
+
+}
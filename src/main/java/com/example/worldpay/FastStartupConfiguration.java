@@ -0,0 +1,43 @@
+package com.example.worldpay;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.data.rest.webmvc.BasePathAwareController;
+import org.springframework.stereotype.Controller;
+
+// With worldpay.startup.lazy-controllers (set by the fast-startup profile), this application's controllers are only
+// created on their first request, as are the @Lazy services only they use. Handler mappings only need their types.
+// Anything doing background work is left alone, as it wouldn't start until something asked for it.
+@Configuration
+@ConditionalOnProperty("worldpay.startup.lazy-controllers")
+public class FastStartupConfiguration {
+
+  private static final String PACKAGE = FastStartupConfiguration.class.getPackage().getName() + ".";
+
+  // static, as it has to be created before any other bean is
+  @Bean
+  public static BeanFactoryPostProcessor lazyControllers() {
+    return beanFactory -> {
+      for (String name : beanFactory.getBeanDefinitionNames()) {
+        BeanDefinition definition = beanFactory.getBeanDefinition(name);
+        if (definition instanceof AnnotatedBeanDefinition
+            && isController(((AnnotatedBeanDefinition) definition).getMetadata())) {
+          definition.setLazyInit(true);
+        }
+      }
+    };
+  }
+
+  // including @RestController and @RepositoryRestController, which are meta-annotated with these
+  private static boolean isController(AnnotationMetadata metadata) {
+    return metadata.getClassName().startsWith(PACKAGE)
+        && (metadata.isAnnotated(Controller.class.getName())
+        || metadata.isAnnotated(BasePathAwareController.class.getName()));
+  }
+
+}
@@ -2,6 +2,8 @@ package com.example.worldpay;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
@@ -11,11 +13,15 @@ import java.util.Optional;
 
 @EnableJpaAuditing
 @EnableTransactionManagement
+@EnableConfigurationProperties(WorldpayProperties.class)
 @SpringBootApplication
 public class WorldpayApplication {
 
   public static void main(String[] args) {
-    SpringApplication.run(WorldpayApplication.class, args);
+    ConfigurableApplicationContext context = SpringApplication.run(WorldpayApplication.class, args);
+    if (context.getBean(WorldpayProperties.class).getStartup().isExit()) {
+      System.exit(SpringApplication.exit(context));
+    }
   }
 
   @Bean
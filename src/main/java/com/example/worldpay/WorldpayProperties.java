@@ -0,0 +1,121 @@
+package com.example.worldpay;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("worldpay")
+public class WorldpayProperties {
+
+  private final CountCache countCache = new CountCache();
+  private final Bulk bulk = new Bulk();
+  private final TextIndex textIndex = new TextIndex();
+  private final Expiry expiry = new Expiry();
+  private final Changes changes = new Changes();
+  private final Summary summary = new Summary();
+  private final Pool pool = new Pool();
+  private final Idempotency idempotency = new Idempotency();
+  private final Offload offload = new Offload();
+  private final Paging paging = new Paging();
+  private final Startup startup = new Startup();
+
+  @Data
+  public static class CountCache {
+    // how long an approximate offer count is served before being refreshed in the background
+    private Duration maxAge = Duration.ofSeconds(30);
+    // merchants whose counts are kept, dropping those least recently asked for beyond it
+    private long merchants = 10_000;
+    // after which a merchant's count that nobody has asked for is dropped
+    private Duration expireAfterAccess = Duration.ofMinutes(10);
+  }
+
+  @Data
+  public static class Bulk {
+    // offers persisted per JDBC batch and per transaction
+    private int batchSize = 500;
+  }
+
+  @Data
+  public static class TextIndex {
+    // e.g. with spring.main.web-application-type=none, to rebuild offline and exit
+    private boolean rebuildOnStartup = false;
+  }
+
+  @Data
+  public static class Expiry {
+    private boolean enabled = true;
+    // delay between the end of one sweep for expired offers and the start of the next
+    private Duration interval = Duration.ofMinutes(1);
+    // offers marked expired per UPDATE and transaction
+    private int batchSize = 500;
+  }
+
+  @Data
+  public static class Changes {
+    // most recent changes kept in memory; subscribers further behind are replayed from the outbox table
+    private int bufferSize = 1024;
+    // threads writing to subscribers, so a slow client holds one of these rather than a request thread
+    private int dispatchThreads = 4;
+    // changes read ahead for each subscriber; one that has caught up and falls further behind is disconnected
+    private int subscriberQueueSize = 1024;
+    // after which a subscriber whose client isn't taking a change is disconnected
+    private Duration sendTimeout = Duration.ofSeconds(10);
+    // after which a subscriber has to reconnect, with Last-Event-ID to resume
+    private Duration timeout = Duration.ofMinutes(10);
+  }
+
+  @Data
+  public static class Summary {
+    // rendered offers kept for /offers?projection=summary, each for one offer version
+    private long fragmentCacheSize = 10_000;
+  }
+
+  @Data
+  public static class Pool {
+    // when set, connection pools without their own maximum-pool-size get this many connections per processor
+    private int connectionsPerCpu = 0;
+  }
+
+  @Data
+  public static class Idempotency {
+    // how long a response is replayed for retries with the same Idempotency-Key, after which the key can be reused
+    private Duration ttl = Duration.ofHours(24);
+    // how long a key can be held by a request still being processed, after which it's taken to have been abandoned
+    // (say by an instance that stopped mid-request) and can be reserved again; keep it longer than any request takes
+    private Duration lease = Duration.ofMinutes(1);
+    // most recent responses kept in memory; older ones are read back from the table
+    private long cacheSize = 10_000;
+    // requests with keys on the same stripe are processed one at a time
+    private int lockStripes = 64;
+    // delay between deletions of expired responses from the table
+    private Duration purgeInterval = Duration.ofHours(1);
+  }
+
+  @Data
+  public static class Offload {
+    // handling GETs with the offload profile; more than the connection pool has only adds threads waiting for one
+    private int threads = 10;
+    // GETs waiting for one of those threads, holding no thread themselves; beyond this they get a 503
+    private int queueCapacity = 10_000;
+    // for a GET to be handled once queued, after which it gets a 503
+    private Duration timeout = Duration.ofSeconds(30);
+  }
+
+  @Data
+  public static class Paging {
+    // /offers?count= pages larger than this are written as their offers are read (see OfferPageWriter), rather than
+    // built in memory first; every page is capped at spring.data.rest.max-page-size
+    private int streamAbove = 100;
+  }
+
+  @Data
+  public static class Startup {
+    // controllers, and the services only they use, created on their first request rather than at startup
+    private boolean lazyControllers = false;
+    // exits once started, for the class-data-sharing training run (see the cds profile in pom.xml)
+    private boolean exit = false;
+  }
+
+}
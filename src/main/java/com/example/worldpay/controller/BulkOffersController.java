@@ -0,0 +1,27 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.service.BulkLoadResult;
+import com.example.worldpay.service.OfferBulkLoader;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RepositoryRestController
+@RequiredArgsConstructor
+public class BulkOffersController {
+
+  public static final String NDJSON_VALUE = "application/x-ndjson";
+
+  private final OfferBulkLoader loader;
+
+  @PostMapping(path = "/offers/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE})
+  public ResponseEntity<BulkLoadResult> load(InputStream body) throws IOException {
+    return ResponseEntity.ok(loader.load(body));
+  }
+
+}
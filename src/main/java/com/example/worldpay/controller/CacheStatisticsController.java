@@ -0,0 +1,37 @@
+package com.example.worldpay.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// per-region hit/miss/eviction counts of the second-level cache, for sizing it; empty unless the "cache" profile is active
+@RestController
+public class CacheStatisticsController {
+
+  private static final String[] ATTRIBUTES = {
+      "CacheHits", "CacheMisses", "CacheHitPercentage", "CachePuts", "CacheRemovals", "CacheEvictions",
+  };
+
+  private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+  @GetMapping("/stats/cache")
+  public Map<String, Map<String, Object>> statistics() throws JMException {
+    Map<String, Map<String, Object>> regions = new TreeMap<>();
+    for (ObjectName name : server.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+      Map<String, Object> statistics = new LinkedHashMap<>();
+      for (String attribute : ATTRIBUTES) {
+        statistics.put(attribute, server.getAttribute(name, attribute));
+      }
+      regions.put(name.getKeyProperty("Cache"), statistics);
+    }
+    return regions;
+  }
+
+}
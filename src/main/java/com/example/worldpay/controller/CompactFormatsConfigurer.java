@@ -0,0 +1,35 @@
+package com.example.worldpay.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.data.rest.webmvc.config.RepositoryRestConfigurerAdapter;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static com.example.worldpay.controller.CompactHttpMessageConverter.*;
+
+// Lets clients of the repository resources ask for compact JSON, Smile or CBOR in their Accept header. Added after
+// Spring Data REST's own converters, so HAL is still what */* or no Accept header gets.
+@Component
+public class CompactFormatsConfigurer extends RepositoryRestConfigurerAdapter {
+
+  @Override
+  public void configureHttpMessageConverters(List<HttpMessageConverter<?>> messageConverters) {
+    AbstractJackson2HttpMessageConverter hal = messageConverters.stream()
+        .filter(converter -> converter instanceof AbstractJackson2HttpMessageConverter)
+        .filter(converter -> converter.getSupportedMediaTypes().contains(MediaTypes.HAL_JSON))
+        .map(AbstractJackson2HttpMessageConverter.class::cast)
+        .findFirst()
+        .orElseThrow(() -> new IllegalStateException("No HAL converter to base the compact formats on"));
+    messageConverters.add(new CompactHttpMessageConverter(hal, new JsonFactory(), MediaType.valueOf(COMPACT_JSON_VALUE)));
+    messageConverters.add(new CompactHttpMessageConverter(hal, new SmileFactory(), MediaType.valueOf(SMILE_VALUE)));
+    messageConverters.add(new CompactHttpMessageConverter(hal, new CBORFactory(), MediaType.valueOf(CBOR_VALUE)));
+  }
+
+}
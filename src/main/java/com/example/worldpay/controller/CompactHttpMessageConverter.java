@@ -0,0 +1,103 @@
+package com.example.worldpay.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.ResourceSupport;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.util.List;
+
+// Writes whatever Spring Data REST's HAL converter would, with a copy of its ObjectMapper (so the same serializers,
+// mixins and embedded rels), but to another format's generator and with only each resource's self link, where HAL
+// has every link, which for a page of offers are most of the payload. The self link is kept so that offers can still
+// be told apart, as Spring Data REST doesn't write their ids. For clients that only read the data, e.g. bulk
+// consumers, which page with the page parameter instead. Responses only: requests are still read as JSON.
+public class CompactHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  public static final String COMPACT_JSON_VALUE = "application/x-compact+json";
+  public static final String SMILE_VALUE = "application/x-jackson-smile";
+  public static final String CBOR_VALUE = "application/cbor";
+
+  private final AbstractJackson2HttpMessageConverter hal;
+  private final ObjectWriter writer;
+  private final JsonFactory factory;
+
+  public CompactHttpMessageConverter(AbstractJackson2HttpMessageConverter hal, JsonFactory factory, MediaType mediaType) {
+    super(mediaType);
+    this.hal = hal;
+    this.writer = hal.getObjectMapper().copy()
+        .addMixIn(ResourceSupport.class, SelfLinkMixin.class)  // in place of the HAL module's
+        .writer();
+    this.factory = factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return hal.canWrite(clazz, MediaTypes.HAL_JSON);
+  }
+
+  @Override
+  protected boolean canRead(MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("Compact formats are only written");
+  }
+
+  // straight to the response, as the other links are never serialized rather than filtered out afterwards
+  @Override
+  protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+    try (JsonGenerator generator = factory.createGenerator(outputMessage.getBody())) {
+      writer.writeValue(generator, value);
+    }
+  }
+
+  abstract static class SelfLinkMixin {
+
+    @JsonProperty("_links")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @JsonSerialize(using = SelfLinkSerializer.class)
+    abstract List<Link> getLinks();
+
+  }
+
+  // {"self": {"href": ...}}, or nothing without a self link
+  static final class SelfLinkSerializer extends JsonSerializer<List<Link>> {
+
+    @Override
+    public void serialize(List<Link> links, JsonGenerator generator, SerializerProvider provider) throws IOException {
+      generator.writeStartObject();
+      generator.writeObjectFieldStart(Link.REL_SELF);
+      generator.writeStringField("href", self(links).getHref());
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, List<Link> links) {
+      return links == null || self(links) == null;
+    }
+
+    private static Link self(List<Link> links) {
+      return links.stream().filter(link -> Link.REL_SELF.equals(link.getRel())).findFirst().orElse(null);
+    }
+
+  }
+
+}
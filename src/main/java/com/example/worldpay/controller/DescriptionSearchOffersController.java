@@ -0,0 +1,54 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.repository.LikePatterns;
+import com.example.worldpay.repository.OffersRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.rest.webmvc.PersistentEntityResourceAssembler;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.data.rest.webmvc.RepositorySearchesResource;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.ResourceProcessor;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.Locale;
+
+// Offers whose description starts with the prefix, ignoring case. Here rather than exported from the repository so
+// that a missing prefix is a 400, and the prefix is escaped before it becomes a LIKE pattern.
+@RepositoryRestController
+@RequiredArgsConstructor
+public class DescriptionSearchOffersController implements ResourceProcessor<RepositorySearchesResource> {
+
+  static final String PATH = "/offers/search/description";
+
+  private final OffersRepository repository;
+
+  @GetMapping(PATH)
+  public ResponseEntity<Resources<?>> search(@RequestParam String prefix,
+                                             Pageable pageable,
+                                             PagedResourcesAssembler<Object> pagedAssembler,
+                                             PersistentEntityResourceAssembler assembler) {
+    @SuppressWarnings("unchecked")
+    Page<Object> offers = (Page<Object>) (Page<?>) repository.findByDescriptionKeyLike(
+        LikePatterns.startingWith(prefix.toLowerCase(Locale.ROOT)), pageable);
+    return ResponseEntity.ok(offers.hasContent()
+        ? pagedAssembler.toResource(offers, assembler)
+        : pagedAssembler.toEmptyResource(offers, Offer.class, new Link(ServletUriComponentsBuilder.fromCurrentRequest().toUriString())));
+  }
+
+  @Override
+  public RepositorySearchesResource process(RepositorySearchesResource resource) {
+    if (Offer.class.equals(resource.getDomainType())) {
+      resource.add(new Link(ServletUriComponentsBuilder.fromCurrentContextPath().path(PATH).toUriString() + "{?prefix,page,size,sort}", "description"));
+    }
+    return resource;
+  }
+
+}
@@ -0,0 +1,55 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.service.OfferExporter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+import static com.example.worldpay.controller.BulkOffersController.NDJSON_VALUE;
+
+// the counterpart of /offers/bulk, without the paging, counting and links of /offers
+@RepositoryRestController
+@RequiredArgsConstructor
+public class ExportOffersController {
+
+  private static final MediaType NDJSON = MediaType.valueOf(NDJSON_VALUE);
+
+  private final OfferExporter exporter;
+
+  // no produces condition, as Spring Data REST substitutes application/hal+json for a missing Accept header
+  @GetMapping("/offers/export")
+  public void export(@RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = NDJSON_VALUE) String accept,
+                     HttpServletResponse response) throws IOException, HttpMediaTypeNotAcceptableException {
+    boolean array = false;  // NDJSON unless JSON is preferred
+    List<MediaType> accepted;
+    try {
+      accepted = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      // a 406, as Spring MVC's own content negotiation answers a header it can't parse
+      throw new HttpMediaTypeNotAcceptableException(
+          "Could not parse 'Accept' header [" + accept + "]: " + e.getMessage());
+    }
+    MediaType.sortBySpecificityAndQuality(accepted);
+    for (MediaType type : accepted) {
+      if (type.includes(NDJSON)) {
+        break;
+      } else if (type.includes(MediaType.APPLICATION_JSON)) {
+        array = true;
+        break;
+      }
+    }
+
+    response.setContentType(array ? MediaType.APPLICATION_JSON_VALUE : NDJSON_VALUE);
+    exporter.export(response.getOutputStream(), array);
+  }
+
+}
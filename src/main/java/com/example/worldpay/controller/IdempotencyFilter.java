@@ -0,0 +1,240 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.model.IdempotentResponse;
+import com.example.worldpay.service.IdempotencyStore;
+import com.example.worldpay.tenant.MerchantContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+
+// Makes POST /offers with an Idempotency-Key safe to retry: the first successful response is stored (see IdempotencyStore)
+// and replayed, with Idempotent-Replayed: true, to later requests with the same key and body, without creating another offer.
+// Failed requests aren't stored, so they can be retried with the same key.
+// The request is handled in a transaction that the stored response is committed in too, so an offer is never committed
+// without it: a request that dies before then leaves only its reservation, and a retry once the lease has expired creates
+// the offer. One that outlasts the lease, and has its reservation taken by such a retry, rolls back rather than commit
+// a second offer, and is answered as if the retry were still in progress.
+// After MerchantFilter, as keys are per merchant.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+  public static final String HEADER = "Idempotency-Key";
+  public static final String REPLAYED = "Idempotent-Replayed";
+
+  private final IdempotencyStore store;
+  private final PlatformTransactionManager transactionManager;
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return request.getHeader(HEADER) == null
+        || !HttpMethod.POST.matches(request.getMethod())
+        || !request.getRequestURI().equals(request.getContextPath() + "/offers");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String value = request.getHeader(HEADER);
+    if (value.isEmpty() || value.length() > IdempotentResponse.KEY_LENGTH) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, HEADER + " must be 1 to " + IdempotentResponse.KEY_LENGTH + " characters");
+      return;
+    }
+    IdempotentResponse.Key key = new IdempotentResponse.Key(MerchantContext.get(), value);
+    byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+    String fingerprint = fingerprint(body);
+
+    // only while the key is looked up and reserved: a retry while the request is processed finds the reservation
+    Optional<IdempotentResponse> existing;
+    Optional<IdempotentResponse> reservation = Optional.empty();
+    Lock lock = store.lock(key);
+    lock.lock();
+    try {
+      existing = store.find(key);
+      if (!existing.isPresent()) {
+        reservation = store.reserve(key, fingerprint);
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    if (existing.isPresent()) {
+      if (!existing.get().getFingerprint().equals(fingerprint)) {
+        response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(), HEADER + " was already used for a different request");
+      } else if (!existing.get().isCompleted()) {
+        inProgress(response);
+      } else {
+        replay(existing.get(), response);
+      }
+    } else if (!reservation.isPresent()) {
+      inProgress(response);
+    } else {
+      process(reservation.get(), new BufferedRequest(request, body), response, chain);
+    }
+  }
+
+  private void process(IdempotentResponse reservation, HttpServletRequest request, HttpServletResponse response,
+                       FilterChain chain) throws ServletException, IOException {
+    ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+    TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+    try {
+      chain.doFilter(request, captured);
+    } catch (IOException | ServletException | RuntimeException | Error e) {
+      rollback(transaction);
+      store.release(reservation);
+      throw e;
+    }
+
+    if (captured.getStatusCode() / 100 == 2) {
+      StringBuilder headers = new StringBuilder();
+      for (String name : captured.getHeaderNames()) {
+        if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+          for (String header : captured.getHeaders(name)) {
+            headers.append(name).append(": ").append(header).append('\n');
+          }
+        }
+      }
+      if (captured.getContentType() != null && captured.getHeader(HttpHeaders.CONTENT_TYPE) == null) {
+        headers.append(HttpHeaders.CONTENT_TYPE).append(": ").append(captured.getContentType()).append('\n');
+      }
+      reservation.setStatus(captured.getStatusCode());
+      reservation.setHeaders(headers.toString());
+      reservation.setBody(captured.getContentAsByteArray());
+      try {
+        store.complete(reservation);
+        transactionManager.commit(transaction);
+      } catch (OptimisticLockingFailureException e) {
+        rollback(transaction);
+        log.warn("Reservation of {} was reclaimed before it completed; consider a longer lease", reservation.getKey(), e);
+        response.reset();
+        inProgress(response);
+        return;
+      } catch (RuntimeException | Error e) {
+        rollback(transaction);
+        store.release(reservation);
+        throw e;
+      }
+    } else {
+      rollback(transaction);  // anything written by a failed request
+      store.release(reservation);
+    }
+    captured.copyBodyToResponse();
+  }
+
+  private void rollback(TransactionStatus transaction) {
+    if (!transaction.isCompleted()) {  // as after a commit that failed
+      transactionManager.rollback(transaction);
+    }
+  }
+
+  private static void replay(IdempotentResponse stored, HttpServletResponse response) throws IOException {
+    response.setStatus(stored.getStatus());
+    for (String line : stored.getHeaders().split("\n")) {
+      int colon = line.indexOf(": ");
+      if (colon > 0) {
+        response.addHeader(line.substring(0, colon), line.substring(colon + 2));
+      }
+    }
+    response.setHeader(REPLAYED, "true");
+    response.setContentLength(stored.getBody().length);
+    response.getOutputStream().write(stored.getBody());
+  }
+
+  // being processed here or on another instance, so there's no response to replay yet
+  private static void inProgress(HttpServletResponse response) throws IOException {
+    response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    response.sendError(HttpServletResponse.SC_CONFLICT, "A request with this " + HEADER + " is still being processed");
+  }
+
+  private static String fingerprint(byte[] body) {
+    try {
+      StringBuilder hex = new StringBuilder(64);
+      for (byte b : MessageDigest.getInstance("SHA-256").digest(body)) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);  // every JVM has SHA-256
+    }
+  }
+
+  // the body was already read for its fingerprint, so this reads it again for Spring Data REST
+  private static final class BufferedRequest extends HttpServletRequestWrapper {
+
+    private final byte[] body;
+
+    BufferedRequest(HttpServletRequest request, byte[] body) {
+      super(request);
+      this.body = body;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      ByteArrayInputStream in = new ByteArrayInputStream(body);
+      return new ServletInputStream() {
+        @Override
+        public boolean isFinished() {
+          return in.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read() {
+          return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+          return in.read(b, off, len);
+        }
+      };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+      String encoding = getCharacterEncoding();
+      return new BufferedReader(new InputStreamReader(getInputStream(),
+          encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+    }
+
+  }
+
+}
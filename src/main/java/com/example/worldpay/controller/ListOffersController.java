@@ -0,0 +1,167 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.controller.SlicedResources.SliceMetadata;
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.service.OfferCountCache;
+import com.example.worldpay.service.OfferPageWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.rest.webmvc.PersistentEntityResourceAssembler;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.core.EmbeddedWrappers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.Link.REL_NEXT;
+import static org.springframework.hateoas.Link.REL_PREVIOUS;
+import static org.springframework.hateoas.Link.REL_SELF;
+
+// /offers?count=none|cached|exact; without the parameter Spring Data REST's own listing (always exact) is used
+@RepositoryRestController
+@RequiredArgsConstructor
+public class ListOffersController {
+
+  private final OffersRepository repository;
+  private final OfferCountCache countCache;
+  private final OfferPageWriter pageWriter;
+  private final WorldpayProperties properties;
+
+  // null once a large page has been written to the response itself
+  @GetMapping(path = "/offers", params = {"count", "projection!=summary"})
+  public ResponseEntity<Resources<?>> list(@RequestParam String count,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                           Pageable pageable,
+                                           PagedResourcesAssembler<Object> pagedAssembler,
+                                           PersistentEntityResourceAssembler assembler,
+                                           HttpServletResponse response) throws IOException {
+    MediaType streamed = pageable.getPageSize() > properties.getPaging().getStreamAbove() ? streamable(accept) : null;
+    if (streamed != null && (count.equals("exact") || count.equals("cached") || count.equals("none"))) {
+      stream(count, pageable, pagedAssembler, assembler, streamed, response);
+      return null;
+    }
+    switch (count) {
+      case "exact":
+        return ResponseEntity.ok(toResource(repository.findAll(pageable), pagedAssembler, assembler));
+      case "cached":
+        return ResponseEntity.ok(toResource(withCachedTotal(repository.findAllBy(pageable)), pagedAssembler, assembler));
+      case "none":
+        return ResponseEntity.ok(toResource(repository.findAllBy(pageable), assembler));
+      default:
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "count must be one of none, cached or exact");
+    }
+  }
+
+  // The same page as below, other than for the Accept header: only HAL (or JSON, which Spring Data REST also answers
+  // with HAL) is streamed. The count, if wanted, is made first, so that the offers are written as soon as read.
+  private void stream(String count,
+                      Pageable pageable,
+                      PagedResourcesAssembler<Object> pagedAssembler,
+                      PersistentEntityResourceAssembler assembler,
+                      MediaType contentType,
+                      HttpServletResponse response) throws IOException {
+    long total = count.equals("exact") ? repository.count() : 0;
+    response.setContentType(contentType.toString());
+    pageWriter.write(pageable, assembler, (offers, hasNext) -> {
+      switch (count) {
+        case "exact":
+          return toResource(new PageImpl<>(Collections.emptyList(), pageable, total), pagedAssembler, assembler);
+        case "cached":
+          return toResource(new PageImpl<>(Collections.emptyList(), pageable, cachedTotal(pageable, offers, hasNext)),
+              pagedAssembler, assembler);
+        default:
+          return toResource(new SliceImpl<>(Collections.emptyList(), pageable, hasNext), assembler);
+      }
+    }, response.getOutputStream());
+  }
+
+  // the content type to stream a page in, if the client prefers HAL or JSON
+  private static MediaType streamable(String accept) {
+    if (accept == null) {
+      return MediaTypes.HAL_JSON_UTF8;
+    }
+    List<MediaType> accepted;
+    try {
+      accepted = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      return null;  // not streamed, so Spring MVC answers it as it would any other request
+    }
+    MediaType.sortBySpecificityAndQuality(accepted);
+    if (accepted.isEmpty() || accepted.get(0).includes(MediaTypes.HAL_JSON)) {
+      return MediaTypes.HAL_JSON_UTF8;
+    } else if (accepted.get(0).includes(MediaType.APPLICATION_JSON)) {
+      return MediaType.APPLICATION_JSON_UTF8;
+    }
+    return null;
+  }
+
+  private Page<Offer> withCachedTotal(Slice<Offer> slice) {
+    long total = cachedTotal(slice.getPageable(), slice.getNumberOfElements(), slice.hasNext());
+    return new PageImpl<>(slice.getContent(), slice.getPageable(), total);
+  }
+
+  private long cachedTotal(Pageable pageable, int elements, boolean hasNext) {
+    if (hasNext) {
+      return Math.max(countCache.get(), pageable.getOffset() + elements + 1);
+    } else if (elements > 0) {
+      return pageable.getOffset() + elements;  // last page, so it is exact anyway
+    } else {
+      return countCache.get();
+    }
+  }
+
+  private static Resources<?> toResource(Page<Offer> page,
+                                         PagedResourcesAssembler<Object> pagedAssembler,
+                                         PersistentEntityResourceAssembler assembler) {
+    @SuppressWarnings("unchecked")
+    Page<Object> objects = (Page<Object>) (Page<?>) page;
+    return page.hasContent()
+        ? pagedAssembler.toResource(objects, assembler)
+        : pagedAssembler.toEmptyResource(objects, Offer.class, new Link(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()));
+  }
+
+  private static Resources<?> toResource(Slice<Offer> slice, PersistentEntityResourceAssembler assembler) {
+    List<Link> links = new ArrayList<>();
+    links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest().toUriString(), REL_SELF));
+    if (slice.hasNext()) {
+      links.add(link(slice.getNumber() + 1, REL_NEXT));
+    }
+    if (slice.hasPrevious()) {
+      links.add(link(slice.getNumber() - 1, REL_PREVIOUS));
+    }
+
+    List<Object> content = slice.hasContent()
+        ? slice.getContent().stream().map(assembler::toFullResource).collect(Collectors.toList())
+        : Collections.singletonList(new EmbeddedWrappers(false).emptyCollectionOf(Offer.class));
+    return new SlicedResources<>(content, new SliceMetadata(slice.getSize(), slice.getNumber()), links);
+  }
+
+  private static Link link(int page, String rel) {
+    return new Link(ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("page", page).toUriString(), rel);
+  }
+
+}
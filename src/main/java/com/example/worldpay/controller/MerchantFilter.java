@@ -0,0 +1,47 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.tenant.MerchantContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Sets the merchant for requests under /offers from the X-Merchant-Id header, or the default merchant without one.
+// Ahead of the other filters here, as OfferETagFilter already queries offers.
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+public class MerchantFilter extends OncePerRequestFilter {
+
+  public static final String HEADER = "X-Merchant-Id";
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith(request.getContextPath() + "/offers");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String merchant = request.getHeader(HEADER);
+    if (merchant == null) {
+      merchant = MerchantContext.DEFAULT;
+    } else if (!MerchantContext.VALID.matcher(merchant).matches()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, HEADER + " must match " + MerchantContext.VALID);
+      return;
+    }
+
+    MerchantContext.set(merchant);
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      MerchantContext.set(null);
+    }
+  }
+
+}
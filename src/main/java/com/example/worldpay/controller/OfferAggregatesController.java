@@ -0,0 +1,24 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.model.CurrencyAggregate;
+import com.example.worldpay.service.OfferAggregates;
+import com.example.worldpay.tenant.MerchantContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+// the current merchant's active offers per currency: how many, and their min, max and average price
+@RestController
+@RequiredArgsConstructor
+public class OfferAggregatesController {
+
+  private final OfferAggregates aggregates;
+
+  @GetMapping("/offers/aggregates")
+  public List<CurrencyAggregate> aggregates() {
+    return aggregates.get(MerchantContext.get());
+  }
+
+}
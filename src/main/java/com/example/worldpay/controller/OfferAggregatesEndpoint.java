@@ -0,0 +1,26 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.service.OfferAggregates;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+// Rebuilds this instance's aggregates from scratch, for every merchant, e.g. after offers were written straight to the
+// database; returns the number of active offers counted. An operation, not part of the offers API, and an O(offers)
+// one that nothing here authenticates, so it's only exposed over JMX by default. Adding offeraggregates to
+// management.endpoints.web.exposure.include serves it as POST /actuator/offeraggregates, for a deployment that
+// keeps the actuator paths off the public network.
+@Component
+@Endpoint(id = "offeraggregates")
+@RequiredArgsConstructor
+public class OfferAggregatesEndpoint {
+
+  private final OfferAggregates aggregates;
+
+  @WriteOperation
+  public long rebuild() {
+    return aggregates.rebuild();
+  }
+
+}
@@ -0,0 +1,25 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.service.OfferChangeFeed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// server-sent events for offers created, updated, deleted and expired; the event id is the change's sequence number.
+// Not a @RepositoryRestController: Spring Data REST's handler adapter lacks the String converter SseEmitter needs.
+@RestController
+@RequiredArgsConstructor
+public class OfferChangesController {
+
+  private final OfferChangeFeed feed;
+
+  @GetMapping("/offers/changes")
+  public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                            @RequestParam(required = false) Long after) {
+    return feed.subscribe(lastEventId != null ? lastEventId : after);  // a reconnecting EventSource sends the header
+  }
+
+}
@@ -0,0 +1,45 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.model.Offer;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+// opaque position in the (createdAt, offerId) ordering used by keyset pagination
+@Value
+public class OfferCursor {
+
+  private final Instant createdAt;
+  private final long offerId;
+  private final boolean backwards;
+
+  public static OfferCursor after(Offer offer) {
+    return new OfferCursor(offer.getCreatedAt(), offer.getOfferId(), false);
+  }
+
+  public static OfferCursor before(Offer offer) {
+    return new OfferCursor(offer.getCreatedAt(), offer.getOfferId(), true);
+  }
+
+  public static OfferCursor decode(String cursor) {
+    try {
+      String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+      if (parts.length != 4) {
+        throw new IllegalArgumentException("Malformed cursor");
+      }
+      Instant createdAt = Instant.ofEpochSecond(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+      return new OfferCursor(createdAt, Long.parseLong(parts[3]), "b".equals(parts[0]));
+    } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {  // includes NumberFormatException
+      throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+    }
+  }
+
+  public String encode() {
+    String raw = (backwards ? "b" : "a") + ':' + createdAt.getEpochSecond() + ':' + createdAt.getNano() + ':' + offerId;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+  }
+
+}
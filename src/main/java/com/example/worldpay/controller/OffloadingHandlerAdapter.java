@@ -0,0 +1,474 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.tenant.MerchantContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FastByteArrayOutputStream;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerAdapter;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+// With the offload profile, GETs under /offers are handled on a pool of worldpay.offload.threads rather than on
+// Tomcat's request threads: the request thread starts async processing and returns, so a GET waiting for a slow
+// database holds one of those threads, and a GET queued behind them holds none.
+// JPA is still blocking, so each GET in progress still holds a thread and a connection; those are just bounded now.
+// The handler itself runs as usual (by whichever adapter would otherwise have run it), in a read-only transaction
+// from ReadOnlyRequestFilter and for the merchant from MerchantFilter, both carried over to the pool's thread.
+// It writes to a buffer rather than the response, which is copied to the response once dispatched back to a request
+// thread, so a handler still running when its request times out can't write to a response that's been completed or
+// recycled since. That buffers all of a streamed page (see OfferPageWriter), so the export, which would be buffered
+// whole, isn't offloaded.
+// Ahead of Spring Data REST's adapter, which is also first in order, as component-scanned beans are registered first.
+@Component
+@Profile("offload")
+public class OffloadingHandlerAdapter implements HandlerAdapter, Ordered {
+
+  private final ApplicationContext context;
+  private final ObjectProvider<ReadOnlyRequestFilter> readOnly;
+  private final WorldpayProperties properties;
+  private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+  private volatile List<HandlerAdapter> delegates;
+
+  public OffloadingHandlerAdapter(ApplicationContext context, ObjectProvider<ReadOnlyRequestFilter> readOnly,
+                                  WorldpayProperties properties) {
+    this.context = context;
+    this.readOnly = readOnly;
+    this.properties = properties;
+    WorldpayProperties.Offload offload = properties.getOffload();
+    executor.setCorePoolSize(offload.getThreads());
+    executor.setMaxPoolSize(offload.getThreads());
+    executor.setQueueCapacity(offload.getQueueCapacity());
+    executor.setThreadNamePrefix("offers-offload-");
+    executor.setDaemon(true);
+    executor.initialize();
+  }
+
+  // not the change feed, which is asynchronous already, nor the export
+  public static boolean offloads(HttpServletRequest request) {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    return (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))
+        && (path.equals("/offers") || path.startsWith("/offers/"))
+        && !path.equals("/offers/changes") && !path.equals("/offers/export");
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+
+  @Override
+  public boolean supports(Object handler) {
+    return delegate(handler) != null;
+  }
+
+  @Override
+  public ModelAndView handle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+    HandlerAdapter delegate = delegate(handler);
+    if (!offloads(request)) {
+      return delegate.handle(request, response, handler);
+    }
+
+    WebAsyncManager manager = WebAsyncUtils.getAsyncManager(request);
+    if (manager.hasConcurrentResult()) {  // dispatched back once handled on the pool
+      Object result = manager.getConcurrentResult();
+      manager.clearConcurrentResult();
+      if (result instanceof RejectedExecutionException) {
+        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many requests queued", (Throwable) result);
+      } else if (result instanceof Exception) {
+        throw (Exception) result;
+      } else if (result instanceof Error) {
+        throw (Error) result;
+      }
+      Handled handled = (Handled) result;
+      handled.response.copyTo(response);
+      return handled.modelAndView;
+    }
+
+    AsyncWebRequest asyncRequest = WebAsyncUtils.createAsyncWebRequest(request, response);
+    asyncRequest.setTimeout(properties.getOffload().getTimeout().toMillis());
+    manager.setTaskExecutor(executor);
+    manager.setAsyncWebRequest(asyncRequest);
+
+    String merchant = MerchantContext.get();
+    HttpServletRequest offloaded = new OffloadedRequest(request);
+    OffloadedResponse buffered = new OffloadedResponse(response);
+    try {
+      manager.startCallableProcessing(() -> {
+        MerchantContext.set(merchant);
+        try {
+          return new Handled(
+              readOnly.getObject().inReadOnlyTransaction(() -> delegate.handle(offloaded, buffered, handler)),
+              buffered);
+        } finally {
+          MerchantContext.set(null);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // already dispatched back with it as the result
+    }
+    return null;
+  }
+
+  @Override
+  public long getLastModified(HttpServletRequest request, Object handler) {
+    return delegate(handler).getLastModified(request, handler);
+  }
+
+  private HandlerAdapter delegate(Object handler) {
+    if (delegates == null) {
+      List<HandlerAdapter> adapters = context.getBeansOfType(HandlerAdapter.class).values().stream()
+          .filter(adapter -> adapter != this)
+          .collect(Collectors.toList());
+      AnnotationAwareOrderComparator.sort(adapters);
+      delegates = adapters;
+    }
+    for (HandlerAdapter adapter : delegates) {
+      if (adapter.supports(handler)) {
+        return adapter;
+      }
+    }
+    return null;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  // The delegate sets up async processing of its own (unused, as there are no async return values here) and gets upset
+  // at finding the request's already started, so it's given a manager of its own.
+  private static final class OffloadedRequest extends HttpServletRequestWrapper {
+
+    private Object manager;
+
+    OffloadedRequest(HttpServletRequest request) {
+      super(request);
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+      return WebAsyncUtils.WEB_ASYNC_MANAGER_ATTRIBUTE.equals(name) ? manager : super.getAttribute(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+      if (WebAsyncUtils.WEB_ASYNC_MANAGER_ATTRIBUTE.equals(name)) {
+        manager = value;
+      } else {
+        super.setAttribute(name, value);
+      }
+    }
+
+  }
+
+  private static final class Handled {
+
+    private final ModelAndView modelAndView;
+    private final OffloadedResponse response;
+
+    Handled(ModelAndView modelAndView, OffloadedResponse response) {
+      this.modelAndView = modelAndView;
+      this.response = response;
+    }
+
+  }
+
+  // Holds everything the handler writes, for copyTo once back on a request thread; nothing is passed through to the
+  // wrapped response (which is only there to satisfy the wrapper's constructor).
+  private static final class OffloadedResponse extends HttpServletResponseWrapper {
+
+    private final HttpHeaders headers = new HttpHeaders();
+    private final FastByteArrayOutputStream body = new FastByteArrayOutputStream();
+    private int status = HttpServletResponse.SC_OK;
+    private boolean error;
+    private String errorMessage;
+    private String contentType;
+    private String characterEncoding = StandardCharsets.ISO_8859_1.name();  // the servlet default
+    private Locale locale = Locale.getDefault();
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    OffloadedResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    void copyTo(HttpServletResponse response) throws IOException {
+      headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+      if (contentType != null) {
+        response.setContentType(contentType);
+      }
+      if (error) {
+        response.sendError(status, errorMessage);  // rendered by the error page as usual
+        return;
+      }
+      response.setStatus(status);
+      flushBuffer();
+      if (body.size() > 0) {
+        response.setContentLength(body.size());
+        body.writeTo(response.getOutputStream());
+      }
+    }
+
+    @Override
+    public void setStatus(int status) {
+      this.status = status;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setStatus(int status, String message) {
+      this.status = status;
+    }
+
+    @Override
+    public int getStatus() {
+      return status;
+    }
+
+    @Override
+    public void sendError(int status) {
+      sendError(status, null);
+    }
+
+    @Override
+    public void sendError(int status, String message) {
+      this.status = status;
+      this.error = true;
+      this.errorMessage = message;
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+      status = HttpServletResponse.SC_FOUND;
+      headers.set(HttpHeaders.LOCATION, location);
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+      return HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) ? contentType != null : headers.containsKey(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+      return HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) ? contentType : headers.getFirst(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+      if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+        return contentType == null ? Collections.emptyList() : Collections.singletonList(contentType);
+      }
+      return headers.getOrDefault(name, Collections.emptyList());
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+      return headers.keySet();
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+        setContentType(value);
+      } else {
+        headers.set(name, value);
+      }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+        setContentType(value);
+      } else {
+        headers.add(name, value);
+      }
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+      setHeader(name, httpDate(date));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+      addHeader(name, httpDate(date));
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+      setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+      addHeader(name, Integer.toString(value));
+    }
+
+    private static String httpDate(long date) {
+      return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC));
+    }
+
+    @Override
+    public void setContentType(String contentType) {
+      this.contentType = contentType;
+      if (contentType != null) {
+        Charset charset = MediaType.parseMediaType(contentType).getCharset();
+        if (charset != null) {
+          characterEncoding = charset.name();
+        }
+      }
+    }
+
+    @Override
+    public String getContentType() {
+      return contentType;
+    }
+
+    @Override
+    public void setCharacterEncoding(String characterEncoding) {
+      this.characterEncoding = characterEncoding;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+      return characterEncoding;
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+      this.locale = locale;
+    }
+
+    @Override
+    public Locale getLocale() {
+      return locale;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+      // set from the buffer once copied
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+      // set from the buffer once copied
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      if (outputStream == null) {
+        outputStream = new ServletOutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            body.write(b);
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) throws IOException {
+            body.write(b, off, len);
+          }
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          // the buffer always takes a write, so the listener can go ahead at once
+          @Override
+          public void setWriteListener(WriteListener listener) {
+            try {
+              listener.onWritePossible();
+            } catch (IOException e) {
+              listener.onError(e);
+            }
+          }
+        };
+      }
+      return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws UnsupportedEncodingException {
+      if (writer == null) {
+        writer = new PrintWriter(new OutputStreamWriter(body, characterEncoding));
+      }
+      return writer;
+    }
+
+    @Override
+    public void flushBuffer() {
+      if (writer != null) {
+        writer.flush();
+      }
+    }
+
+    @Override
+    public boolean isCommitted() {
+      return false;
+    }
+
+    @Override
+    public void reset() {
+      resetBuffer();
+      headers.clear();
+      status = HttpServletResponse.SC_OK;
+      error = false;
+      errorMessage = null;
+      contentType = null;
+    }
+
+    @Override
+    public void resetBuffer() {
+      flushBuffer();
+      body.reset();
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public int getBufferSize() {
+      return body.size();
+    }
+
+  }
+
+}
@@ -0,0 +1,169 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.datasource.ReplicaRoutingDataSource;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.Callable;
+
+// Runs each GET (and HEAD) under /offers in one read-only transaction, on the replica if there is one (see
+// ReplicaRoutingDataSource). Spring's read-only transactions only turn off flushing: this also loads every entity
+// read-only, so Hibernate keeps no snapshots to dirty-check them against. Nothing changed in such a request is written.
+// The transaction ends as soon as the response body (or an error) is started, so its connection goes back to the pool
+// rather than being held while the body is written to a slow client. Anything streamed from the database while the
+// body is written, as by OfferPageWriter, has a transaction of its own.
+// Ahead of OfferETagFilter, so its version lookup is part of the same transaction.
+// GETs handed to another thread by OffloadingHandlerAdapter get their transaction there instead, from inReadOnlyTransaction,
+// and OfferETagFilter's lookup for one a read-only transaction of its own.
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ReadOnlyRequestFilter extends OncePerRequestFilter {
+
+  private static final TransactionDefinition READ_ONLY = readOnly();
+
+  private final PlatformTransactionManager transactionManager;
+  private final ObjectProvider<OffloadingHandlerAdapter> offloading;  // only with the offload profile
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  public ReadOnlyRequestFilter(PlatformTransactionManager transactionManager,
+                               ObjectProvider<OffloadingHandlerAdapter> offloading) {
+    this.transactionManager = transactionManager;
+    this.offloading = offloading;
+  }
+
+  private static TransactionDefinition readOnly() {
+    DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+    definition.setReadOnly(true);
+    return definition;
+  }
+
+  // not the actuator endpoints or anything else outside /offers, which have no use for it
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    return !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))
+        || !(path.equals("/offers") || path.startsWith("/offers/"))
+        || (offloading.getIfAvailable() != null && OffloadingHandlerAdapter.offloads(request));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    ReplicaRoutingDataSource.setReplicaReads(true);
+    try {
+      TransactionStatus status = begin();
+      try {
+        chain.doFilter(request, new CommittingResponse(response, status));
+      } catch (IOException | ServletException | RuntimeException | Error e) {
+        if (!status.isCompleted()) {
+          transactionManager.rollback(status);
+        }
+        throw e;
+      }
+      commit(status);
+    } finally {
+      ReplicaRoutingDataSource.setReplicaReads(false);
+    }
+  }
+
+  // the same, for work on a thread of its own
+  public <T> T inReadOnlyTransaction(Callable<T> work) throws Exception {
+    ReplicaRoutingDataSource.setReplicaReads(true);
+    try {
+      TransactionStatus status = begin();
+      T result;
+      try {
+        result = work.call();
+      } catch (Exception | Error e) {
+        transactionManager.rollback(status);
+        throw e;
+      }
+      transactionManager.commit(status);
+      return result;
+    } finally {
+      ReplicaRoutingDataSource.setReplicaReads(false);
+    }
+  }
+
+  private TransactionStatus begin() {
+    TransactionStatus status = transactionManager.getTransaction(READ_ONLY);
+    entityManager.unwrap(Session.class).setDefaultReadOnly(true);
+    return status;
+  }
+
+  private void commit(TransactionStatus status) {
+    if (!status.isCompleted()) {
+      transactionManager.commit(status);
+    }
+  }
+
+  // commits the request's transaction once the handler starts on the body, which it has everything for by then
+  private final class CommittingResponse extends HttpServletResponseWrapper {
+
+    private final TransactionStatus status;
+
+    CommittingResponse(HttpServletResponse response, TransactionStatus status) {
+      super(response);
+      this.status = status;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      commit(status);
+      return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      commit(status);
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      commit(status);
+      super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      commit(status);
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      commit(status);
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      commit(status);
+      super.sendRedirect(location);
+    }
+
+  }
+
+}
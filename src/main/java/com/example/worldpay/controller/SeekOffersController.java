@@ -0,0 +1,114 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.repository.OffersRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.rest.core.config.RepositoryRestConfiguration;
+import org.springframework.data.rest.webmvc.PersistentEntityResourceAssembler;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.data.rest.webmvc.RepositorySearchesResource;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.ResourceProcessor;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.core.EmbeddedWrappers;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.Link.REL_NEXT;
+import static org.springframework.hateoas.Link.REL_PREVIOUS;
+import static org.springframework.hateoas.Link.REL_SELF;
+
+// keyset alternative to the page-number listing at /offers, whose OFFSET and count(*) grow with the page number
+@RepositoryRestController
+@RequiredArgsConstructor
+public class SeekOffersController implements ResourceProcessor<RepositorySearchesResource> {
+
+  static final String PATH = "/offers/search/seek";
+
+  private final OffersRepository repository;
+  private final RepositoryRestConfiguration config;
+
+  @GetMapping(PATH)
+  public ResponseEntity<Resources<?>> seek(@RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size,
+                                           PersistentEntityResourceAssembler assembler) {
+    int limit = size == null || size < 1 ? config.getDefaultPageSize() : Math.min(size, config.getMaxPageSize());
+    PageRequest fetch = PageRequest.of(0, limit + 1);  // one extra row tells us whether there is more
+
+    OfferCursor position = parse(cursor);
+    List<Offer> offers;
+    if (position == null) {
+      offers = new ArrayList<>(repository.findFirst(fetch));
+    } else if (position.isBackwards()) {
+      offers = new ArrayList<>(repository.findBefore(position.getCreatedAt(), position.getOfferId(), fetch));
+    } else {
+      offers = new ArrayList<>(repository.findAfter(position.getCreatedAt(), position.getOfferId(), fetch));
+    }
+
+    boolean more = offers.size() > limit;
+    if (more) {
+      offers.remove(limit);
+    }
+    if (position != null && position.isBackwards()) {
+      Collections.reverse(offers);
+    }
+
+    List<Link> links = new ArrayList<>();
+    links.add(link(cursor, REL_SELF));
+    if (!offers.isEmpty()) {
+      boolean hasNext = (position != null && position.isBackwards()) || more;
+      boolean hasPrev = position != null && (!position.isBackwards() || more);
+      if (hasNext) {
+        links.add(link(OfferCursor.after(offers.get(offers.size() - 1)).encode(), REL_NEXT));
+      }
+      if (hasPrev) {
+        links.add(link(OfferCursor.before(offers.get(0)).encode(), REL_PREVIOUS));
+      }
+    }
+
+    List<?> content = offers.isEmpty()
+        ? Collections.singletonList(new EmbeddedWrappers(false).emptyCollectionOf(Offer.class))
+        : offers.stream().map(assembler::toFullResource).collect(Collectors.toList());
+    return ResponseEntity.ok(new Resources<>(content, links));
+  }
+
+  @Override
+  public RepositorySearchesResource process(RepositorySearchesResource resource) {
+    if (Offer.class.equals(resource.getDomainType())) {
+      resource.add(new Link(ServletUriComponentsBuilder.fromCurrentContextPath().path(PATH).toUriString() + "{?cursor,size}", "seek"));
+    }
+    return resource;
+  }
+
+  private static OfferCursor parse(String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+    try {
+      return OfferCursor.decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    }
+  }
+
+  private static Link link(String cursor, String rel) {
+    ServletUriComponentsBuilder uri = ServletUriComponentsBuilder.fromCurrentRequest();
+    if (cursor == null) {
+      uri.replaceQueryParam("cursor");
+    } else {
+      uri.replaceQueryParam("cursor", cursor);
+    }
+    return new Link(uri.toUriString(), rel);
+  }
+
+}
@@ -0,0 +1,31 @@
+package com.example.worldpay.controller;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resources;
+
+// like PagedResources, but without the totals that need a count(*)
+@EqualsAndHashCode(callSuper = true)
+public class SlicedResources<T> extends Resources<T> {
+
+  private final SliceMetadata metadata;
+
+  public SlicedResources(Iterable<T> content, SliceMetadata metadata, Iterable<Link> links) {
+    super(content, links);
+    this.metadata = metadata;
+  }
+
+  @JsonProperty("page")
+  public SliceMetadata getMetadata() {
+    return metadata;
+  }
+
+  @Value
+  public static class SliceMetadata {
+    private final long size;
+    private final long number;
+  }
+
+}
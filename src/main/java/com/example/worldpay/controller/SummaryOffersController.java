@@ -0,0 +1,81 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.model.OfferSummary;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.service.OfferSummaryRenderer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.hateoas.Link.REL_NEXT;
+import static org.springframework.hateoas.Link.REL_PREVIOUS;
+import static org.springframework.hateoas.Link.REL_SELF;
+
+// /offers?projection=summary: the same representation as /offers?count=none, for list views,
+// read with a constructor query and rendered from cached fragments (see OfferSummaryRenderer). The fragments are
+// HAL JSON, so a request that accepts neither that nor JSON (such as one for CBOR) gets a 406.
+@RepositoryRestController
+@RequiredArgsConstructor
+public class SummaryOffersController {
+
+  private static final List<MediaType> PRODUCES = Arrays.asList(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON);
+
+  private final OffersRepository repository;
+  private final OfferSummaryRenderer renderer;
+
+  // no produces condition, which would hand other types to Spring Data REST's listing rather than refusing them
+  @GetMapping(path = "/offers", params = "projection=summary")
+  public void summaries(@RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.ALL_VALUE) String accept,
+                        Pageable pageable, HttpServletResponse response)
+      throws IOException, HttpMediaTypeNotAcceptableException {
+    if (!acceptsJson(accept)) {
+      throw new HttpMediaTypeNotAcceptableException(PRODUCES);
+    }
+    Slice<OfferSummary> slice = repository.findSummaries(pageable);
+
+    List<Link> links = new ArrayList<>();
+    links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest().toUriString(), REL_SELF));
+    if (slice.hasNext()) {
+      links.add(link(slice.getNumber() + 1, REL_NEXT));
+    }
+    if (slice.hasPrevious()) {
+      links.add(link(slice.getNumber() - 1, REL_PREVIOUS));
+    }
+
+    response.setContentType(MediaTypes.HAL_JSON_UTF8_VALUE);
+    String offersUri = ServletUriComponentsBuilder.fromCurrentContextPath().path("/offers").toUriString();
+    renderer.write(slice, offersUri, links, response.getOutputStream());
+  }
+
+  private static boolean acceptsJson(String accept) {
+    List<MediaType> accepted;
+    try {
+      accepted = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      return false;
+    }
+    return accepted.isEmpty() || accepted.stream().anyMatch(type -> type.getQualityValue() > 0
+        && PRODUCES.stream().anyMatch(type::isCompatibleWith));
+  }
+
+  private static Link link(int page, String rel) {
+    return new Link(ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("page", page).toUriString(), rel);
+  }
+
+}
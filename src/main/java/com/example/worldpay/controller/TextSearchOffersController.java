@@ -0,0 +1,49 @@
+package com.example.worldpay.controller;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.service.OfferTextIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.rest.webmvc.PersistentEntityResourceAssembler;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.data.rest.webmvc.RepositorySearchesResource;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.ResourceProcessor;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+// keyword search over descriptions, ranked by relevance (so any sort parameter is ignored)
+@RepositoryRestController
+@RequiredArgsConstructor
+public class TextSearchOffersController implements ResourceProcessor<RepositorySearchesResource> {
+
+  static final String PATH = "/offers/search/text";
+
+  private final OfferTextIndex textIndex;
+
+  @GetMapping(PATH)
+  public ResponseEntity<Resources<?>> search(@RequestParam String q,
+                                             Pageable pageable,
+                                             PagedResourcesAssembler<Object> pagedAssembler,
+                                             PersistentEntityResourceAssembler assembler) {
+    @SuppressWarnings("unchecked")
+    Page<Object> offers = (Page<Object>) (Page<?>) textIndex.search(q, pageable);
+    return ResponseEntity.ok(offers.hasContent()
+        ? pagedAssembler.toResource(offers, assembler)
+        : pagedAssembler.toEmptyResource(offers, Offer.class, new Link(ServletUriComponentsBuilder.fromCurrentRequest().toUriString())));
+  }
+
+  @Override
+  public RepositorySearchesResource process(RepositorySearchesResource resource) {
+    if (Offer.class.equals(resource.getDomainType())) {
+      resource.add(new Link(ServletUriComponentsBuilder.fromCurrentContextPath().path(PATH).toUriString() + "{?q,page,size}", "text"));
+    }
+    return resource;
+  }
+
+}
@@ -0,0 +1,49 @@
+package com.example.worldpay.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+// Sizes connection pools from the processor count with worldpay.pool.connections-per-cpu, unless their own
+// maximum-pool-size is set. Hikari's rule of thumb is two per core, plus one per disk spindle (none on SSDs):
+// connections beyond what the database can work on at once only queue there instead of in the pool.
+@Slf4j
+@Component
+public class ConnectionPoolSizing implements BeanPostProcessor, EnvironmentAware {
+
+  private Environment environment;
+
+  @Override
+  public void setEnvironment(Environment environment) {
+    this.environment = environment;
+  }
+
+  // Spring Boot's own pool, bound to spring.datasource.hikari.* before this runs
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+    if (bean instanceof HikariDataSource) {
+      apply((HikariDataSource) bean, "spring.datasource.hikari", environment);
+    }
+    return bean;
+  }
+
+  static void apply(HikariDataSource pool, String prefix, Environment environment) {
+    Binder binder = Binder.get(environment);
+    int perCpu = binder.bind("worldpay.pool.connections-per-cpu", Integer.class).orElse(0);
+    if (perCpu < 1 || binder.bind(prefix + ".maximum-pool-size", Integer.class).isBound()) {
+      return;
+    }
+
+    pool.setMaximumPoolSize(perCpu * Runtime.getRuntime().availableProcessors());
+    // Hikari would quietly lower it, and keep a fixed-size pool
+    if (pool.getMinimumIdle() > pool.getMaximumPoolSize()) {
+      log.warn("{}.minimum-idle ({}) is more than the {} connections worldpay.pool.connections-per-cpu allows here",
+          prefix, pool.getMinimumIdle(), pool.getMaximumPoolSize());
+    }
+  }
+
+}
@@ -0,0 +1,59 @@
+package com.example.worldpay.datasource;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Warns at startup about Hibernate settings that undo each other, as happens when one of those in
+// application-production.properties is overridden without the others.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JdbcSettingsCheck implements ApplicationRunner {
+
+  private final EntityManagerFactory entityManagerFactory;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    problems().forEach(log::warn);
+  }
+
+  public List<String> problems() {
+    return problems(entityManagerFactory.getProperties());
+  }
+
+  public static List<String> problems(Map<String, Object> settings) {
+    List<String> problems = new ArrayList<>();
+    int batchSize = Integer.parseInt(setting(settings, "hibernate.jdbc.batch_size", "0"));
+    if (batchSize > 1) {
+      // a flush alternating between offers and their terms, or offers and changes, would send batches of one
+      if (!Boolean.parseBoolean(setting(settings, "hibernate.order_inserts", "false"))) {
+        problems.add("hibernate.jdbc.batch_size is " + batchSize + " but hibernate.order_inserts is off, "
+            + "so inserts are only batched while they are for the same table");
+      }
+      if (!Boolean.parseBoolean(setting(settings, "hibernate.order_updates", "false"))) {
+        problems.add("hibernate.jdbc.batch_size is " + batchSize + " but hibernate.order_updates is off, "
+            + "so updates are only batched while they are for the same table");
+      }
+      // offers are versioned
+      if (!Boolean.parseBoolean(setting(settings, "hibernate.jdbc.batch_versioned_data", "true"))) {
+        problems.add("hibernate.jdbc.batch_size is " + batchSize + " but hibernate.jdbc.batch_versioned_data is off, "
+            + "so offer updates are never batched");
+      }
+    }
+    return problems;
+  }
+
+  private static String setting(Map<String, Object> settings, String name, String defaultValue) {
+    Object value = settings.get(name);
+    return value == null ? defaultValue : value.toString().trim();
+  }
+
+}
@@ -0,0 +1,45 @@
+package com.example.worldpay.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+// Only with worldpay.replica.jdbc-url set, e.g. jdbc:h2:tcp://replica/offers: a second pool, configured with
+// worldpay.replica.* as the primary is with spring.datasource.hikari.*, that GET requests read from.
+// Replaces Spring Boot's DataSource. The pools aren't beans themselves, as Boot would then initialize the
+// "primary" DataSource (this one) while creating them.
+@Configuration
+@ConditionalOnProperty("worldpay.replica.jdbc-url")
+public class ReplicaDataSourceConfiguration {
+
+  @Bean
+  public ReplicaRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                             ObjectProvider<MeterRegistry> registry) {
+    HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class).build();
+    primary.setPoolName("primary");
+    replica.setPoolName("replica");
+    replica.setReadOnly(true);
+    Binder binder = Binder.get(environment);
+    binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+    binder.bind("worldpay.replica", Bindable.ofInstance(replica));
+    ConnectionPoolSizing.apply(primary, "spring.datasource.hikari", environment);
+    ConnectionPoolSizing.apply(replica, "worldpay.replica", environment);
+
+    registry.ifAvailable(meters -> {
+      primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meters));
+      replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meters));
+    });
+    return new ReplicaRoutingDataSource(primary, replica);
+  }
+
+}
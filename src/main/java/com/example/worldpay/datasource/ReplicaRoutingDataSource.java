@@ -0,0 +1,53 @@
+package com.example.worldpay.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+// Hands out replica connections to threads that have opted in (see ReadOnlyRequestFilter), primary ones to everything else.
+// Opting in is explicit, rather than following every read-only transaction, because Spring Data's reads are all
+// read-only: the find before an update, or a startup check deciding what to write, must not see replication lag.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+  private enum Target { PRIMARY, REPLICA }
+
+  private static final ThreadLocal<Boolean> REPLICA_READS = ThreadLocal.withInitial(() -> false);
+
+  private final HikariDataSource primary;
+  private final HikariDataSource replica;
+
+  public ReplicaRoutingDataSource(HikariDataSource primary, HikariDataSource replica) {
+    this.primary = primary;
+    this.replica = replica;
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(Target.PRIMARY, primary);
+    targets.put(Target.REPLICA, replica);
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  // must be set before the transaction starts, as that is when its connection is obtained
+  public static void setReplicaReads(boolean replicaReads) {
+    if (replicaReads) {
+      REPLICA_READS.set(true);
+    } else {
+      REPLICA_READS.remove();
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return REPLICA_READS.get() ? Target.REPLICA : Target.PRIMARY;
+  }
+
+  @Override
+  public void close() {
+    replica.close();
+    primary.close();
+  }
+
+}
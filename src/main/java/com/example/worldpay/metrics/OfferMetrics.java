@@ -0,0 +1,43 @@
+package com.example.worldpay.metrics;
+
+import com.example.worldpay.repository.OffersRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.function.ToDoubleFunction;
+
+// Spring Boot 2.0 binds the connection pool and HTTP metrics itself, but not Hibernate's statistics.
+// not a MeterBinder: those are bound while the registry is created, before the (timed) repository can exist
+@Component
+@RequiredArgsConstructor
+public class OfferMetrics {
+
+  private final MeterRegistry registry;
+  private final OffersRepository repository;
+  private final EntityManagerFactory entityManagerFactory;
+
+  @PostConstruct
+  void bind() {
+    // each is an indexed count, run when the gauges are scraped
+    gauge("active", OffersRepository::countActive);
+    gauge("expired", OffersRepository::countExpired);
+    gauge("cancelled", OffersRepository::countByCancelledTrue);
+
+    // needs hibernate.generate_statistics, includes second-level cache hits and misses per region
+    new HibernateMetrics(entityManagerFactory, "default", Collections.emptyList()).bindTo(registry);
+  }
+
+  private void gauge(String state, ToDoubleFunction<OffersRepository> count) {
+    Gauge.builder("offers", repository, count)
+        .description("Offers by lifecycle state")
+        .tag("state", state)
+        .register(registry);
+  }
+
+}
@@ -0,0 +1,37 @@
+package com.example.worldpay.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+// times every OffersRepository call, whether it comes from Spring Data REST or our own controllers and services
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetrics {
+
+  private final MeterRegistry registry;
+
+  @Around("execution(* com.example.worldpay.repository.OffersRepository+.*(..))")
+  public Object time(ProceedingJoinPoint call) throws Throwable {
+    Timer.Sample sample = Timer.start(registry);
+    String exception = "none";
+    try {
+      return call.proceed();
+    } catch (Throwable e) {
+      exception = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      sample.stop(Timer.builder("offers.repository")
+          .description("OffersRepository method invocations")
+          .tag("method", call.getSignature().getName())
+          .tag("exception", exception)
+          .register(registry));
+    }
+  }
+
+}
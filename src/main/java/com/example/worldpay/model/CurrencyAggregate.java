@@ -0,0 +1,18 @@
+package com.example.worldpay.model;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+// a merchant's active offers in one currency, as served by /offers/aggregates
+@Value
+public class CurrencyAggregate {
+
+  private final Currency currency;
+  private final long active;
+  private final BigDecimal min;
+  private final BigDecimal max;
+  private final BigDecimal average;
+
+}
@@ -0,0 +1,21 @@
+package com.example.worldpay.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.Currency;
+
+// stored as the ISO 4217 code, in a CHAR(3) column (see Price)
+@Converter(autoApply = true)
+public class CurrencyConverter implements AttributeConverter<Currency, String> {
+
+  @Override
+  public String convertToDatabaseColumn(Currency currency) {
+    return currency == null ? null : currency.getCurrencyCode();
+  }
+
+  @Override
+  public Currency convertToEntityAttribute(String code) {
+    return code == null ? null : Currency.getInstance(code);
+  }
+
+}
@@ -0,0 +1,81 @@
+package com.example.worldpay.model;
+
+import com.example.worldpay.tenant.MerchantContext;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+
+// The response to the first request made with an Idempotency-Key, replayed to any retry with the same key.
+// Reserved (with no status yet) before that request is processed, so a concurrent retry on another instance
+// fails to insert its own rather than creating a second offer.
+@Data
+@Entity
+@NoArgsConstructor
+@Table(indexes = @Index(name = "idempotent_response_created_at", columnList = "createdAt"))
+public class IdempotentResponse {
+
+  public static final int KEY_LENGTH = 255;
+
+  @EmbeddedId
+  private Key key;
+
+  // SHA-256 of the request body, so a key reused for a different request can be refused
+  @Column(length = 64, nullable = false)
+  private String fingerprint;
+
+  @Column(nullable = false)
+  private Instant createdAt;
+
+  private int status;  // 0 while the first request is still being processed
+
+  // null until inserted, so saving a new reservation is an insert that fails on a duplicate key
+  @Version
+  private Long version;
+
+  // "Name: value" lines
+  @Lob
+  private String headers;
+
+  @Lob
+  private byte[] body;
+
+  public IdempotentResponse(Key key, String fingerprint, Instant createdAt) {
+    this.key = key;
+    this.fingerprint = fingerprint;
+    this.createdAt = createdAt;
+  }
+
+  public boolean isCompleted() {
+    return status != 0;
+  }
+
+  public boolean isExpired(Instant now, Duration ttl) {
+    return createdAt.plus(ttl).isBefore(now);
+  }
+
+  // reserved by a request that hasn't completed within the lease
+  public boolean isAbandoned(Instant now, Duration lease) {
+    return !isCompleted() && createdAt.plus(lease).isBefore(now);
+  }
+
+  // keys are only unique per merchant
+  @Data
+  @Embeddable
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+
+    @Column(length = MerchantContext.MAX_LENGTH)
+    private String merchant;
+
+    @Column(name = "idempotency_key", length = KEY_LENGTH)
+    private String value;
+
+  }
+
+}
@@ -1,11 +1,20 @@
 package com.example.worldpay.model;
 
+import com.example.worldpay.tenant.MerchantContext;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Columns;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
+import org.hibernate.annotations.Type;
 import org.hibernate.validator.constraints.Length;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import org.springframework.hateoas.ResourceSupport;
 
@@ -15,6 +24,7 @@ import javax.validation.constraints.NotNull;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.Period;
+import java.util.Locale;
 
 import static java.time.ZoneOffset.UTC;
 
@@ -22,27 +32,76 @@ import static java.time.ZoneOffset.UTC;
 @Entity
 //@NoArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable  // only takes effect when the second-level cache is enabled (see the "cache" profile)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Offer.CACHE_REGION)
+@FilterDef(name = Offer.MERCHANT_FILTER, parameters = @ParamDef(name = "merchant", type = "string"))
+@Filter(name = Offer.MERCHANT_FILTER, condition = "merchant = :merchant")
+// Requests only ever see one merchant's offers, so their indexes lead with it and each merchant's scans stay
+// proportional to its own offers. Those without a merchant are for background work across all of them.
+@Table(indexes = {
+    @Index(name = "offer_merchant_offer_id", columnList = "merchant, offerId"),
+    @Index(name = "offer_merchant_expires_at", columnList = "merchant, expiresAt"),
+    @Index(name = "offer_merchant_created_at_offer_id", columnList = "merchant, createdAt, offerId"),
+    @Index(name = "offer_merchant_cancelled_expires_at", columnList = "merchant, cancelled, expiresAt"),
+    @Index(name = "offer_merchant_currency_value", columnList = "merchant, currency, value"),
+    @Index(name = "offer_merchant_description_key", columnList = "merchant, descriptionKey"),
+    @Index(name = "offer_expires_at", columnList = "expiresAt"),
+    @Index(name = "offer_cancelled_expires_at", columnList = "cancelled, expiresAt"),
+    @Index(name = "offer_expiry_recorded_at_expires_at", columnList = "expiryRecordedAt, expiresAt"),
+})
 public class Offer extends ResourceSupport {
 
-  @GeneratedValue
+  public static final String MERCHANT_FILTER = "merchant";
+  public static final String CACHE_REGION = "offers";
+  public static final String QUERY_CACHE_REGION = "offer-queries";
+  public static final int ID_ALLOCATION_SIZE = 50;
+
+  // pooled, so a batch of inserts needs one sequence call per ID_ALLOCATION_SIZE rather than one per row
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "offer_id")
+  @SequenceGenerator(name = "offer_id", sequenceName = "offer_id_seq", allocationSize = ID_ALLOCATION_SIZE)
   @Id
   @JsonIgnore
   private long offerId;
 
+  // set when created, from MerchantContext
+  @Column(length = MerchantContext.MAX_LENGTH, nullable = false, updatable = false)
+  @JsonIgnore
+  private String merchant;
+
   @CreatedDate
   @JsonIgnore
   private Instant createdAt;
 
+  // exposed by Spring Data REST as the ETag and Last-Modified headers
+  @Version
+  @JsonIgnore
+  private long version;
+
+  @LastModifiedDate
+  @JsonIgnore
+  private Instant lastModifiedAt;
+
   @Length(max=1024)
   @NotEmpty
   @Setter
   private String description;
 
+  // lower-cased description, so a case-insensitive prefix search can use an index
+  @Length(max=1024)
+  @JsonIgnore
+  private String descriptionKey;
+
   @Embedded
   @NotNull
   @Setter
   private Price price;
 
+  @Type(type = PeriodType.NAME)
+  @Columns(columns = {
+      @Column(name = "duration_years"),
+      @Column(name = "duration_months"),
+      @Column(name = "duration_days"),
+  })
   @NotNull
   @Setter
   private Period duration;
@@ -50,12 +109,39 @@ public class Offer extends ResourceSupport {
   @Setter
   private boolean cancelled;
 
-  @JsonProperty ("_expired")
-  public boolean isExpired() {
-    return LocalDateTime
+  // derived from createdAt + duration, persisted so active/expired can be range-scanned
+  @JsonIgnore
+  private Instant expiresAt;
+
+  // set by the expiry sweeper once it has published the expiry, cleared if expiresAt moves
+  @JsonIgnore
+  private Instant expiryRecordedAt;
+
+  @PrePersist
+  @PreUpdate
+  void updateDerivedColumns() {
+    if (merchant == null) {
+      merchant = MerchantContext.get() == null ? MerchantContext.DEFAULT : MerchantContext.get();
+    }
+    descriptionKey = getDescription() == null ? null : getDescription().toLowerCase(Locale.ROOT);
+
+    // entity listeners run before this, so the auditing listener has already set createdAt
+    if (getCreatedAt() == null || getDuration() == null) {
+      return;  // left to bean validation
+    }
+    Instant updated = LocalDateTime
         .ofInstant(getCreatedAt(), UTC)
         .plus(getDuration())
-        .isBefore(LocalDateTime.now(UTC));
+        .toInstant(UTC);
+    if (!updated.equals(expiresAt)) {
+      expiresAt = updated;
+      expiryRecordedAt = null;
+    }
+  }
+
+  @JsonProperty ("_expired")
+  public boolean isExpired() {
+    return getExpiresAt().isBefore(Instant.now());
   }
 
   @JsonProperty ("_active")
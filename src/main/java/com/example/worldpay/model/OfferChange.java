@@ -0,0 +1,47 @@
+package com.example.worldpay.model;
+
+import com.example.worldpay.tenant.MerchantContext;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+// an entry in the outbox behind the /offers/changes feed; clients resume from the last sequence they saw
+@Data
+@Entity
+@NoArgsConstructor
+@Table(indexes = @Index(name = "offer_change_merchant_sequence", columnList = "merchant, sequence"))
+public class OfferChange {
+
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "offer_change_sequence")
+  @SequenceGenerator(name = "offer_change_sequence", sequenceName = "offer_change_seq", allocationSize = Offer.ID_ALLOCATION_SIZE)
+  @Id
+  private long sequence;
+
+  @Enumerated(EnumType.STRING)
+  @Column(length = 16)
+  private Type type;
+
+  private long offerId;
+
+  // only sent to the offer's merchant's subscribers
+  @JsonIgnore
+  @Column(length = MerchantContext.MAX_LENGTH)
+  private String merchant;
+
+  private Instant changedAt;
+
+  public OfferChange(Type type, long offerId, String merchant, Instant changedAt) {
+    this.type = type;
+    this.offerId = offerId;
+    this.merchant = merchant;
+    this.changedAt = changedAt;
+  }
+
+  public enum Type {
+    CREATED, UPDATED, DELETED, EXPIRED
+  }
+
+}
@@ -0,0 +1,13 @@
+package com.example.worldpay.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+// published by the expiry sweeper, in the transaction recording the expiry (see OffersWrittenEvent for listeners)
+@Value
+public class OfferExpiredEvent {
+  private final long offerId;
+  private final String merchant;
+  private final Instant expiresAt;
+}
@@ -0,0 +1,50 @@
+package com.example.worldpay.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.Period;
+import java.util.Currency;
+
+// an offer as read for list views, by a constructor query: never managed, so never dirty checked
+@Value
+public class OfferSummary {
+
+  @JsonIgnore
+  private final long offerId;
+
+  @JsonIgnore
+  private final long version;
+
+  private final String description;
+  private final Price price;
+  private final Period duration;
+  private final boolean cancelled;
+
+  @JsonIgnore
+  private final Instant expiresAt;
+
+  public OfferSummary(long offerId, long version, String description, Currency currency, BigDecimal value,
+                      Period duration, boolean cancelled, Instant expiresAt) {
+    this.offerId = offerId;
+    this.version = version;
+    this.description = description;
+    this.price = new Price(currency, value);
+    this.duration = duration;
+    this.cancelled = cancelled;
+    this.expiresAt = expiresAt;
+  }
+
+  // as Offer.isExpired() and isActive(), but evaluated by the renderer rather than serialized
+
+  public boolean isExpiredAt(Instant now) {
+    return expiresAt.isBefore(now);
+  }
+
+  public boolean isActiveAt(Instant now) {
+    return !cancelled && !isExpiredAt(now);
+  }
+
+}
@@ -0,0 +1,40 @@
+package com.example.worldpay.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+// a posting in the full-text index over Offer.description: the primary key leads with the term,
+// so looking up a query's terms is an index range scan
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(OfferTerm.Key.class)
+@Table(indexes = @Index(name = "offer_term_offer_id", columnList = "offerId"))
+public class OfferTerm {
+
+  public static final int MAX_LENGTH = 64;
+
+  @Id
+  @Column(length = MAX_LENGTH)
+  private String term;
+
+  @Id
+  private long offerId;
+
+  // occurrences of the term in the description
+  private int frequency;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+    private String term;
+    private long offerId;
+  }
+
+}
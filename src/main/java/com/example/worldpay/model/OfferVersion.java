@@ -0,0 +1,12 @@
+package com.example.worldpay.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+// what a conditional GET of an offer is answered from: its ETag and Last-Modified
+@Value
+public class OfferVersion {
+  private final long version;
+  private final Instant lastModifiedAt;
+}
@@ -0,0 +1,15 @@
+package com.example.worldpay.model;
+
+import com.example.worldpay.model.OfferChange.Type;
+import lombok.Value;
+
+import java.util.List;
+
+// Published inside the transaction that wrote the offers, all of them one merchant's. A plain listener runs in that
+// transaction, so can write alongside them (as OfferChangeFeed does); a @TransactionalEventListener runs once committed.
+@Value
+public class OffersWrittenEvent {
+  private final Type type;
+  private final String merchant;
+  private final List<Offer> offers;
+}
@@ -0,0 +1,116 @@
+package com.example.worldpay.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.Type;
+import org.hibernate.usertype.CompositeUserType;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Period;
+import java.util.Objects;
+
+// Hibernate 5.2 has no mapping for Period and would store it Java-serialized;
+// this keeps it as three integer columns that can be filtered and sorted on (e.g. "o.duration.months")
+public class PeriodType implements CompositeUserType {
+
+  public static final String NAME = "com.example.worldpay.model.PeriodType";
+
+  private static final String[] PROPERTY_NAMES = {"years", "months", "days"};
+  private static final Type[] PROPERTY_TYPES = {IntegerType.INSTANCE, IntegerType.INSTANCE, IntegerType.INSTANCE};
+
+  @Override
+  public String[] getPropertyNames() {
+    return PROPERTY_NAMES.clone();
+  }
+
+  @Override
+  public Type[] getPropertyTypes() {
+    return PROPERTY_TYPES.clone();
+  }
+
+  @Override
+  public Object getPropertyValue(Object component, int property) {
+    Period period = (Period) component;
+    switch (property) {
+      case 0:
+        return period.getYears();
+      case 1:
+        return period.getMonths();
+      case 2:
+        return period.getDays();
+      default:
+        throw new IllegalArgumentException("No such property: " + property);
+    }
+  }
+
+  @Override
+  public void setPropertyValue(Object component, int property, Object value) {
+    throw new UnsupportedOperationException("Period is immutable");
+  }
+
+  @Override
+  public Class returnedClass() {
+    return Period.class;
+  }
+
+  @Override
+  public boolean equals(Object x, Object y) {
+    return Objects.equals(x, y);
+  }
+
+  @Override
+  public int hashCode(Object x) {
+    return Objects.hashCode(x);
+  }
+
+  @Override
+  public Object nullSafeGet(ResultSet rs, String[] names, SharedSessionContractImplementor session, Object owner)
+      throws SQLException {
+    int years = rs.getInt(names[0]);
+    if (rs.wasNull()) {
+      return null;
+    }
+    return Period.of(years, rs.getInt(names[1]), rs.getInt(names[2]));
+  }
+
+  @Override
+  public void nullSafeSet(PreparedStatement st, Object value, int index, SharedSessionContractImplementor session)
+      throws SQLException {
+    for (int i = 0; i < PROPERTY_NAMES.length; i++) {
+      if (value == null) {
+        st.setNull(index + i, java.sql.Types.INTEGER);
+      } else {
+        st.setInt(index + i, (Integer) getPropertyValue(value, i));
+      }
+    }
+  }
+
+  @Override
+  public Object deepCopy(Object value) {
+    return value;
+  }
+
+  @Override
+  public boolean isMutable() {
+    return false;
+  }
+
+  @Override
+  public Serializable disassemble(Object value, SharedSessionContractImplementor session) {
+    return (Serializable) value;
+  }
+
+  @Override
+  public Object assemble(Serializable cached, SharedSessionContractImplementor session, Object owner) {
+    return cached;
+  }
+
+  @Override
+  public Object replace(Object original, Object target, SharedSessionContractImplementor session, Object owner) {
+    return original;
+  }
+
+}
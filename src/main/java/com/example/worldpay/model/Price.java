@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
@@ -12,11 +14,18 @@ import java.util.Currency;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@Embeddable
 public class Price {
 
+  public static final int PRECISION = 19;
+  public static final int SCALE = 4;
+
+  @Column(columnDefinition = "char(3)", length = 3)
   @NotNull
   private Currency currency;
 
+  // enough for the minor units of any ISO 4217 currency, rather than the Hibernate default of 2
+  @Column(precision = PRECISION, scale = SCALE)
   @Min(0)
   @NotNull
   private BigDecimal value;
@@ -0,0 +1,27 @@
+package com.example.worldpay.repository;
+
+import com.example.worldpay.model.IdempotentResponse;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.time.Instant;
+import java.util.Optional;
+
+// used by IdempotencyStore rather than exported
+@RepositoryRestResource(exported = false)
+public interface IdempotentResponsesRepository extends Repository<IdempotentResponse, IdempotentResponse.Key> {
+
+  Optional<IdempotentResponse> findById(IdempotentResponse.Key key);
+
+  IdempotentResponse save(IdempotentResponse response);
+
+  void delete(IdempotentResponse response);
+
+  @Modifying
+  @Query("delete from IdempotentResponse r where r.createdAt < :before")
+  int deleteCreatedBefore(@Param("before") Instant before);
+
+}
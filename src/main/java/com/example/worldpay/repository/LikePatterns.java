@@ -0,0 +1,22 @@
+package com.example.worldpay.repository;
+
+// LIKE patterns for values that may themselves contain % or _, escaped with \ (as the queries using them declare)
+public final class LikePatterns {
+
+  public static final char ESCAPE = '\\';
+
+  private LikePatterns() {
+  }
+
+  public static String startingWith(String prefix) {
+    StringBuilder pattern = new StringBuilder(prefix.length() + 1);
+    for (char c : prefix.toCharArray()) {
+      if (c == '%' || c == '_' || c == ESCAPE) {
+        pattern.append(ESCAPE);
+      }
+      pattern.append(c);
+    }
+    return pattern.append('%').toString();
+  }
+
+}
@@ -0,0 +1,26 @@
+package com.example.worldpay.repository;
+
+import com.example.worldpay.model.OfferChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.List;
+import java.util.Optional;
+
+// read through OfferChangeFeed rather than exported
+@RepositoryRestResource(exported = false)
+public interface OfferChangesRepository extends Repository<OfferChange, Long> {
+
+  <S extends OfferChange> Iterable<S> saveAll(Iterable<S> changes);
+
+  // every merchant's
+  List<OfferChange> findBySequenceGreaterThanAndSequenceLessThanOrderBySequence(long after, long before,
+                                                                        Pageable limit);
+
+  List<OfferChange> findByMerchantAndSequenceGreaterThanAndSequenceLessThanOrderBySequence(String merchant, long after,
+                                                                                   long before, Pageable limit);
+
+  Optional<OfferChange> findTopByOrderBySequenceDesc();
+
+}
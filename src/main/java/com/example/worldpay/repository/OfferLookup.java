@@ -0,0 +1,12 @@
+package com.example.worldpay.repository;
+
+import com.example.worldpay.model.Offer;
+
+import java.util.Optional;
+
+// findById as CrudRepository declares it, but only finding the current merchant's offers (see OfferLookupImpl)
+public interface OfferLookup {
+
+  Optional<Offer> findById(Long offerId);
+
+}
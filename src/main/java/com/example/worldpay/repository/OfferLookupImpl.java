@@ -0,0 +1,26 @@
+package com.example.worldpay.repository;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.tenant.MerchantContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Optional;
+
+// Still a find, so it is served from the persistence context and second-level cache, but Hibernate filters
+// don't apply to loading by id, so the merchant is checked here.
+public class OfferLookupImpl implements OfferLookup {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<Offer> findById(Long offerId) {
+    String merchant = MerchantContext.get();
+    return Optional.ofNullable(entityManager.find(Offer.class, offerId))
+        .filter(offer -> merchant == null || merchant.equals(offer.getMerchant()));
+  }
+
+}
@@ -0,0 +1,14 @@
+package com.example.worldpay.repository;
+
+import com.example.worldpay.model.Offer;
+
+// save and delete as CrudRepository declares them, but also publishing an OffersWrittenEvent (see OfferWritesImpl)
+public interface OfferWrites {
+
+  <S extends Offer> S save(S offer);
+
+  void delete(Offer offer);
+
+  void deleteById(Long offerId);
+
+}
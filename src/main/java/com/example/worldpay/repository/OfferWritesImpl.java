@@ -0,0 +1,62 @@
+package com.example.worldpay.repository;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferChange.Type;
+import com.example.worldpay.model.OffersWrittenEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collections;
+
+// What SimpleJpaRepository does, plus the event, published before the transaction commits so that anything written
+// in response to it (the change feed's outbox) commits or rolls back with the offer. saveAll and deleteAll still go
+// straight to SimpleJpaRepository; the bulk loader publishes its own event per batch.
+public class OfferWritesImpl implements OfferWrites {
+
+  private final ApplicationEventPublisher publisher;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  public OfferWritesImpl(ApplicationEventPublisher publisher) {
+    this.publisher = publisher;
+  }
+
+  @Override
+  @Transactional
+  public <S extends Offer> S save(S offer) {
+    if (offer.getOfferId() == 0) {  // new, as SimpleJpaRepository tells from the primitive id
+      entityManager.persist(offer);
+      published(Type.CREATED, offer);
+      return offer;
+    }
+    S merged = entityManager.merge(offer);
+    published(Type.UPDATED, merged);
+    return merged;
+  }
+
+  @Override
+  @Transactional
+  public void delete(Offer offer) {
+    entityManager.remove(entityManager.contains(offer) ? offer : entityManager.merge(offer));
+    published(Type.DELETED, offer);
+  }
+
+  @Override
+  @Transactional
+  public void deleteById(Long offerId) {
+    Offer offer = entityManager.find(Offer.class, offerId);
+    if (offer == null) {
+      throw new EmptyResultDataAccessException("No offer with id " + offerId + " exists", 1);
+    }
+    delete(offer);
+  }
+
+  private void published(Type type, Offer offer) {
+    publisher.publishEvent(new OffersWrittenEvent(type, offer.getMerchant(), Collections.singletonList(offer)));
+  }
+
+}
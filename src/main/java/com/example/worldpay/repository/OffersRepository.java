@@ -1,9 +1,153 @@
 package com.example.worldpay.repository;
 
 import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferExpiredEvent;
+import com.example.worldpay.model.OfferSummary;
+import com.example.worldpay.model.OfferVersion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.example.worldpay.model.Offer.QUERY_CACHE_REGION;
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.hibernate.annotations.QueryHints.CACHE_REGION;
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
+
 @Repository
-public interface OffersRepository extends PagingAndSortingRepository<Offer, Long> {
+public interface OffersRepository extends PagingAndSortingRepository<Offer, Long>, OfferLookup, OfferWrites {
+
+  // implemented by OfferLookupImpl, declared again here for callers, which would find CrudRepository's ambiguous
+  @Override
+  Optional<Offer> findById(Long offerId);
+
+  // implemented by OfferWritesImpl, declared again for the same reason
+  @Override
+  <S extends Offer> S save(S offer);
+
+  @Override
+  void delete(Offer offer);
+
+  @Override
+  void deleteById(Long offerId);
+
+  @Override
+  @QueryHints({@QueryHint(name = CACHEABLE, value = "true"), @QueryHint(name = CACHE_REGION, value = QUERY_CACHE_REGION)})
+  Page<Offer> findAll(Pageable pageable);
+
+  // lets a conditional GET be answered without loading the offer
+  @RestResource(exported = false)
+  @Query("select new com.example.worldpay.model.OfferVersion(o.version, o.lastModifiedAt) from Offer o" +
+      " where o.offerId = :offerId")
+  Optional<OfferVersion> findVersionById(@Param("offerId") long offerId);
+
+  @RestResource(path = "active", rel = "active")
+  @Query("select o from Offer o where o.expiresAt > current_timestamp and o.cancelled = false")
+  Page<Offer> findActive(Pageable pageable);
+
+  @RestResource(path = "expired", rel = "expired")
+  @Query("select o from Offer o where o.expiresAt <= current_timestamp")
+  Page<Offer> findExpired(Pageable pageable);
+
+  // each of these searches is a range scan of one of the indexes on Offer
+
+  @RestResource(path = "cancelled", rel = "cancelled")
+  Page<Offer> findByCancelled(@Param("cancelled") boolean cancelled, Pageable pageable);
+
+  @RestResource(path = "price", rel = "price")
+  Page<Offer> findByPriceCurrencyAndPriceValueBetween(@Param("currency") Currency currency,
+                                                      @Param("min") BigDecimal min,
+                                                      @Param("max") BigDecimal max,
+                                                      Pageable pageable);
+
+  @RestResource(path = "created", rel = "created")
+  Page<Offer> findByCreatedAtBetween(@Param("from") Instant from, @Param("to") Instant to, Pageable pageable);
+
+  // a pattern escaped by LikePatterns, see DescriptionSearchOffersController
+  @RestResource(exported = false)
+  @Query("select o from Offer o where o.descriptionKey like :pattern escape '\\'")
+  Page<Offer> findByDescriptionKeyLike(@Param("pattern") String pattern, Pageable pageable);
+
+  @RestResource(exported = false)
+  @Query("select count(o) from Offer o where o.expiresAt > current_timestamp and o.cancelled = false")
+  long countActive();
+
+  @RestResource(exported = false)
+  @Query("select count(o) from Offer o where o.expiresAt <= current_timestamp")
+  long countExpired();
+
+  @RestResource(exported = false)
+  long countByCancelledTrue();
+
+  // expiries not yet published, oldest first, over the (expiryRecordedAt, expiresAt) index
+  @RestResource(exported = false)
+  @Query("select new com.example.worldpay.model.OfferExpiredEvent(o.offerId, o.merchant, o.expiresAt) from Offer o" +
+      " where o.expiryRecordedAt is null and o.expiresAt <= :now order by o.expiresAt")
+  List<OfferExpiredEvent> findDueExpiries(@Param("now") Instant now, Pageable limit);
+
+  // bumps the version, so an offer loaded before the sweep fails its optimistic lock rather than writing back a null
+  // expiryRecordedAt and publishing the expiry twice; rechecks that each is due, as it may have been extended (or
+  // recorded by another instance) since findDueExpiries
+  @RestResource(exported = false)
+  @Modifying
+  @Query("update Offer o set o.expiryRecordedAt = :now, o.version = o.version + 1" +
+      " where o.offerId in :offerIds and o.expiryRecordedAt is null and o.expiresAt <= :now")
+  int markExpired(@Param("offerIds") Collection<Long> offerIds, @Param("now") Instant now);
+
+  // those of the offers that markExpired just recorded with the same instant
+  @RestResource(exported = false)
+  @Query("select new com.example.worldpay.model.OfferExpiredEvent(o.offerId, o.merchant, o.expiresAt) from Offer o" +
+      " where o.offerId in :offerIds and o.expiryRecordedAt = :now order by o.expiresAt")
+  List<OfferExpiredEvent> findRecordedExpiries(@Param("offerIds") Collection<Long> offerIds, @Param("now") Instant now);
+
+  // a page of offers without the count(*) query a Page needs
+  @RestResource(exported = false)
+  @QueryHints({@QueryHint(name = CACHEABLE, value = "true"), @QueryHint(name = CACHE_REGION, value = QUERY_CACHE_REGION)})
+  Slice<Offer> findAllBy(Pageable pageable);
+
+  // list views without loading entities, see SummaryOffersController
+  @RestResource(exported = false)
+  @Query("select new com.example.worldpay.model.OfferSummary(o.offerId, o.version, o.description," +
+      " o.price.currency, o.price.value, o.duration, o.cancelled, o.expiresAt) from Offer o")
+  Slice<OfferSummary> findSummaries(Pageable pageable);
+
+  // must be consumed inside a transaction, and closed
+  @RestResource(exported = false)
+  @QueryHints(@QueryHint(name = FETCH_SIZE, value = "500"))
+  @Query("select o from Offer o order by o.offerId")
+  Stream<Offer> streamAll();
+
+  // keyset pagination over the (createdAt, offerId) index: pass a PageRequest for page 0 to get a LIMIT, no OFFSET/count
+
+  @RestResource(exported = false)
+  @Query("select o from Offer o order by o.createdAt, o.offerId")
+  List<Offer> findFirst(Pageable limit);
+
+  @RestResource(exported = false)
+  @Query("select o from Offer o" +
+      " where o.createdAt > :createdAt or (o.createdAt = :createdAt and o.offerId > :offerId)" +
+      " order by o.createdAt, o.offerId")
+  List<Offer> findAfter(@Param("createdAt") Instant createdAt, @Param("offerId") long offerId, Pageable limit);
+
+  @RestResource(exported = false)
+  @Query("select o from Offer o" +
+      " where o.createdAt < :createdAt or (o.createdAt = :createdAt and o.offerId < :offerId)" +
+      " order by o.createdAt desc, o.offerId desc")
+  List<Offer> findBefore(@Param("createdAt") Instant createdAt, @Param("offerId") long offerId, Pageable limit);
+
 }
@@ -0,0 +1,22 @@
+package com.example.worldpay.service;
+
+import lombok.Data;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkLoadResult {
+
+  private long created;
+  private final List<ItemError> errors = new ArrayList<>();
+
+  // index is the position of the offer in the request, counting from 0
+  @Value
+  public static class ItemError {
+    private final long index;
+    private final List<String> messages;
+  }
+
+}
@@ -0,0 +1,168 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.model.IdempotentResponse;
+import com.example.worldpay.repository.IdempotentResponsesRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Responses to requests made with an Idempotency-Key: the most recent in memory, all of them (until the TTL) in the table.
+// Within an instance, looking up and reserving a key is serialized by the lock on its stripe; across instances, by the
+// reservation row, which only one of them can insert. A reservation that isn't completed within the lease is taken to
+// have been abandoned, and can be reserved again without waiting for the TTL.
+@Slf4j
+@Service
+public class IdempotencyStore {
+
+  private final IdempotentResponsesRepository repository;
+  private final TransactionTemplate transactionTemplate;
+  private final WorldpayProperties properties;
+  private final Cache<IdempotentResponse.Key, IdempotentResponse> completed;
+  private final Lock[] stripes;
+
+  private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "idempotency-purge");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public IdempotencyStore(IdempotentResponsesRepository repository, PlatformTransactionManager transactionManager,
+                          WorldpayProperties properties, MeterRegistry registry) {
+    WorldpayProperties.Idempotency idempotency = properties.getIdempotency();
+    this.repository = repository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.properties = properties;
+    this.completed = Caffeine.newBuilder()
+        .maximumSize(idempotency.getCacheSize())
+        .expireAfterWrite(idempotency.getTtl().toMillis(), TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(registry, completed, "idempotent-responses");
+    this.stripes = new Lock[idempotency.getLockStripes()];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  @PostConstruct
+  void start() {
+    long interval = properties.getIdempotency().getPurgeInterval().toMillis();
+    purger.scheduleWithFixedDelay(() -> {
+      try {
+        purge();
+      } catch (RuntimeException e) {
+        log.warn("Purging expired idempotent responses failed", e);  // and try again next time
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  // held while looking up and reserving a key, not while the request is processed
+  public Lock lock(IdempotentResponse.Key key) {
+    return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+  }
+
+  // completed or still being processed, unless expired or abandoned
+  public Optional<IdempotentResponse> find(IdempotentResponse.Key key) {
+    Instant now = Instant.now();
+    IdempotentResponse response = completed.getIfPresent(key);
+    if (response != null && !response.isExpired(now, ttl())) {
+      return Optional.of(response);  // cached for the TTL from when it was read, which can be after it was created
+    }
+    Optional<IdempotentResponse> stored = repository.findById(key)
+        .filter(found -> !reclaimable(found, now));
+    stored.filter(IdempotentResponse::isCompleted).ifPresent(found -> completed.put(key, found));
+    return stored;
+  }
+
+  // empty if another instance reserved the key first
+  public Optional<IdempotentResponse> reserve(IdempotentResponse.Key key, String fingerprint) {
+    Instant now = Instant.now();
+    try {
+      return Optional.of(transactionTemplate.execute(status -> {
+        IdempotentResponse response = repository.findById(key).orElse(null);
+        if (response == null) {
+          response = new IdempotentResponse(key, fingerprint, now);
+        } else if (reclaimable(response, now)) {
+          // not purged yet, so reused in place; the version stops two instances doing so at once
+          response.setFingerprint(fingerprint);
+          response.setCreatedAt(now);
+          response.setStatus(0);
+          response.setHeaders(null);
+          response.setBody(null);
+        } else {
+          throw new DataIntegrityViolationException("Idempotency key " + key + " was reserved concurrently");
+        }
+        return repository.save(response);
+      }));
+    } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+      log.debug("Lost the reservation of {}", key, e);
+      return Optional.empty();
+    }
+  }
+
+  // in the caller's transaction, along with whatever the request wrote; throws OptimisticLockingFailureException, there
+  // or on commit, if the reservation was reclaimed in the meantime
+  public void complete(IdempotentResponse response) {
+    IdempotentResponse saved = repository.save(response);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        completed.put(saved.getKey(), saved);
+      }
+    });
+  }
+
+  // so the key can be retried, e.g. once the request is corrected
+  public void release(IdempotentResponse reservation) {
+    try {
+      repository.delete(reservation);
+    } catch (OptimisticLockingFailureException e) {
+      log.debug("Reservation of {} was reclaimed before it was released", reservation.getKey(), e);
+    }
+  }
+
+  // returns the number of expired responses deleted from the table
+  public int purge() {
+    Instant before = Instant.now().minus(ttl());
+    int purged = transactionTemplate.execute(status -> repository.deleteCreatedBefore(before));
+    if (purged > 0) {
+      log.debug("Purged {} expired idempotent responses", purged);
+    }
+    return purged;
+  }
+
+  private Duration ttl() {
+    return properties.getIdempotency().getTtl();
+  }
+
+  private boolean reclaimable(IdempotentResponse response, Instant now) {
+    return response.isExpired(now, ttl()) || response.isAbandoned(now, properties.getIdempotency().getLease());
+  }
+
+  @PreDestroy
+  void shutdown() {
+    purger.shutdownNow();
+  }
+
+}
@@ -0,0 +1,214 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.model.CurrencyAggregate;
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferChange.Type;
+import com.example.worldpay.model.OfferExpiredEvent;
+import com.example.worldpay.model.OffersWrittenEvent;
+import com.example.worldpay.model.Price;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
+
+// Active offer counts and price statistics per merchant and currency, kept in memory and updated from offer events,
+// so reading them costs O(currencies) rather than a scan of the offers. The summary is per JVM: it only sees the
+// writes this instance handles, never those handled by other instances, which only a rebuild picks up. Built on
+// startup, and rebuilt on demand through OfferAggregatesEndpoint, from one pass over the active offers. Memory is
+// O(active offers), as each one's price is kept so that an update or delete takes back exactly what it added.
+// Expired offers drop out when the expiry sweeper publishes them, so can be counted for up to
+// worldpay.expiry.interval after expiring; like the text index, offers written without an OffersWrittenEvent
+// aren't seen until the next rebuild.
+@Slf4j
+@Service
+public class OfferAggregates implements ApplicationRunner {
+
+  private final TransactionTemplate transactionTemplate;
+  private final Object rebuilding = new Object();
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  // guarded by this
+  private State state = new State();
+  private List<Consumer<State>> pending;  // changes made during a rebuild, replayed onto the rebuilt state
+
+  public OfferAggregates(PlatformTransactionManager transactionManager) {
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+  }
+
+  @TransactionalEventListener
+  public void written(OffersWrittenEvent event) {
+    for (Offer offer : event.getOffers()) {
+      if (event.getType() == Type.DELETED) {
+        long offerId = offer.getOfferId();
+        apply(target -> target.remove(offerId));
+      } else {
+        set(offer);
+      }
+    }
+  }
+
+  @TransactionalEventListener
+  public void expired(OfferExpiredEvent event) {
+    long offerId = event.getOfferId();
+    apply(target -> target.remove(offerId));
+  }
+
+  // copied now, as the offer may change before a rebuild replays this
+  private void set(Offer offer) {
+    long offerId = offer.getOfferId();
+    Counted counted = offer.isActive()
+        ? new Counted(offer.getMerchant(), offer.getPrice().getCurrency(), offer.getPrice().getValue())
+        : null;
+    apply(target -> target.set(offerId, counted));
+  }
+
+  private synchronized void apply(Consumer<State> change) {
+    change.accept(state);
+    if (pending != null) {
+      pending.add(change);
+    }
+  }
+
+  // the merchant's, by currency code
+  public synchronized List<CurrencyAggregate> get(String merchant) {
+    return state.merchants.getOrDefault(merchant, Collections.emptyMap()).entrySet().stream()
+        .map(entry -> entry.getValue().toAggregate(entry.getKey()))
+        .sorted(Comparator.comparing(aggregate -> aggregate.getCurrency().getCurrencyCode()))
+        .collect(Collectors.toList());
+  }
+
+  // Every merchant's, from a cursor over the active offers. Events during the scan are applied to the old state,
+  // which is still served, and replayed onto the new one: each sets an offer's contribution outright, so one the
+  // scan already reflects is harmless.
+  public long rebuild() {
+    synchronized (rebuilding) {
+      synchronized (this) {
+        pending = new ArrayList<>();
+      }
+      State rebuilt;
+      try {
+        rebuilt = transactionTemplate.execute(status -> scan());
+      } catch (RuntimeException | Error e) {
+        synchronized (this) {
+          pending = null;
+        }
+        throw e;
+      }
+      synchronized (this) {
+        pending.forEach(change -> change.accept(rebuilt));
+        pending = null;
+        state = rebuilt;
+      }
+      log.info("Rebuilt offer aggregates from {} active offers", rebuilt.counted.size());
+      return rebuilt.counted.size();
+    }
+  }
+
+  private State scan() {
+    Session session = entityManager.unwrap(Session.class);
+    session.disableFilter(Offer.MERCHANT_FILTER);  // if a request's EntityManager, every merchant's offers
+    State scanned = new State();
+    try (Stream<Object[]> rows = entityManager.createQuery(
+        "select o.offerId, o.merchant, o.price.currency, o.price.value from Offer o" +
+            " where o.cancelled = false and o.expiresAt > :now", Object[].class)
+        .setParameter("now", Instant.now())
+        .setHint(FETCH_SIZE, 500)
+        .getResultStream()) {
+      rows.forEach(row -> scanned.set((Long) row[0], new Counted((String) row[1], (Currency) row[2], (BigDecimal) row[3])));
+    }
+    return scanned;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    rebuild();
+  }
+
+  @Value
+  private static class Counted {
+    private final String merchant;
+    private final Currency currency;
+    private final BigDecimal value;
+  }
+
+  private static final class State {
+
+    private final Map<Long, Counted> counted = new HashMap<>();
+    private final Map<String, Map<Currency, Prices>> merchants = new HashMap<>();
+
+    // null for an offer that isn't active
+    void set(long offerId, Counted offer) {
+      remove(offerId);
+      if (offer != null) {
+        counted.put(offerId, offer);
+        merchants.computeIfAbsent(offer.getMerchant(), merchant -> new HashMap<>())
+            .computeIfAbsent(offer.getCurrency(), currency -> new Prices())
+            .add(offer.getValue());
+      }
+    }
+
+    void remove(long offerId) {
+      Counted offer = counted.remove(offerId);
+      if (offer == null) {
+        return;
+      }
+      Map<Currency, Prices> currencies = merchants.get(offer.getMerchant());
+      Prices prices = currencies.get(offer.getCurrency());
+      prices.remove(offer.getValue());
+      if (prices.count == 0) {
+        currencies.remove(offer.getCurrency());
+        if (currencies.isEmpty()) {
+          merchants.remove(offer.getMerchant());
+        }
+      }
+    }
+
+  }
+
+  // the sum for the average, and each distinct price with its number of offers, for the min and max after a removal
+  private static final class Prices {
+
+    private final TreeMap<BigDecimal, Integer> values = new TreeMap<>();
+    private long count;
+    private BigDecimal sum = BigDecimal.ZERO;
+
+    void add(BigDecimal value) {
+      values.merge(value, 1, Integer::sum);
+      count++;
+      sum = sum.add(value);
+    }
+
+    void remove(BigDecimal value) {
+      values.computeIfPresent(value, (price, offers) -> offers == 1 ? null : offers - 1);
+      count--;
+      sum = sum.subtract(value);
+    }
+
+    CurrencyAggregate toAggregate(Currency currency) {
+      return new CurrencyAggregate(currency, count, values.firstKey(), values.lastKey(),
+          sum.divide(BigDecimal.valueOf(count), Price.SCALE, RoundingMode.HALF_EVEN));
+    }
+
+  }
+
+}
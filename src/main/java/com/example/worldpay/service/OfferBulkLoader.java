@@ -0,0 +1,129 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferChange.Type;
+import com.example.worldpay.model.OffersWrittenEvent;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.service.BulkLoadResult.ItemError;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.hibernate.Session;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Streams offers from a JSON array or NDJSON body and inserts the valid ones in JDBC batches,
+// one transaction per batch, so memory use and transaction size stay bounded for any input size.
+// Each batch publishes one OffersWrittenEvent, which keeps the change feed, text index, aggregates and count in step.
+@Service
+public class OfferBulkLoader {
+
+  private final OffersRepository repository;
+  private final Validator validator;
+  private final ObjectReader reader;
+  private final TransactionTemplate transactionTemplate;
+  private final ApplicationEventPublisher publisher;
+  private final WorldpayProperties properties;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  public OfferBulkLoader(OffersRepository repository, Validator validator, ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager, ApplicationEventPublisher publisher,
+                         WorldpayProperties properties) {
+    this.repository = repository;
+    this.validator = validator;
+    this.reader = objectMapper.readerFor(Offer.class);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.publisher = publisher;
+    this.properties = properties;
+  }
+
+  public BulkLoadResult load(InputStream body) throws IOException {
+    int batchSize = properties.getBulk().getBatchSize();
+    BulkLoadResult result = new BulkLoadResult();
+    List<Offer> batch = new ArrayList<>(batchSize);
+
+    // a top-level array is unwrapped, anything else is read as a sequence of root-level values
+    try (MappingIterator<Offer> offers = reader.readValues(body)) {
+      for (long index = 0; ; index++) {
+        Offer offer;
+        try {
+          if (!offers.hasNextValue()) {
+            break;
+          }
+          offer = offers.nextValue();
+        } catch (JsonParseException e) {
+          result.getErrors().add(new ItemError(index, Collections.singletonList(e.getOriginalMessage())));
+          break;  // the rest of the stream cannot be read reliably
+        } catch (JsonMappingException e) {
+          result.getErrors().add(new ItemError(index, Collections.singletonList(e.getOriginalMessage())));
+          continue;  // well-formed but not an offer, the iterator skips to the next value
+        }
+
+        List<String> violations = validate(offer);
+        if (!violations.isEmpty()) {
+          result.getErrors().add(new ItemError(index, violations));
+          continue;
+        }
+
+        batch.add(offer);
+        if (batch.size() == batchSize) {
+          result.setCreated(result.getCreated() + persist(batch));
+        }
+      }
+    }
+    result.setCreated(result.getCreated() + persist(batch));
+    return result;
+  }
+
+  private List<String> validate(Offer offer) {
+    Stream<String> violations = messages("", validator.validate(offer));
+    if (offer.getPrice() != null) {
+      // Offer.price isn't @Valid, so its constraints aren't cascaded
+      violations = Stream.concat(violations, messages("price.", validator.validate(offer.getPrice())));
+    }
+    return violations.sorted().collect(Collectors.toList());
+  }
+
+  private static Stream<String> messages(String prefix, Set<? extends ConstraintViolation<?>> violations) {
+    return violations.stream().map(violation -> prefix + violation.getPropertyPath() + ": " + violation.getMessage());
+  }
+
+  private int persist(List<Offer> batch) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    int size = batch.size();
+    transactionTemplate.execute(status -> {
+      entityManager.unwrap(Session.class).setJdbcBatchSize(size);
+      repository.saveAll(batch);  // which publishes nothing itself
+      String merchant = batch.get(0).getMerchant();  // all the request's merchant's
+      publisher.publishEvent(new OffersWrittenEvent(Type.CREATED, merchant, new ArrayList<>(batch)));  // a copy: batch is reused
+      entityManager.flush();
+      entityManager.clear();  // nothing is read back, so don't keep the batch in the persistence context
+      return null;
+    });
+    batch.clear();
+    return size;
+  }
+
+}
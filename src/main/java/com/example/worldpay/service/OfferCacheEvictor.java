@@ -0,0 +1,34 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferChange.Type;
+import com.example.worldpay.model.OffersWrittenEvent;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManagerFactory;
+
+// Hibernate keeps the cache in step with writes made through a session, but not with bulk or native updates,
+// so an update or delete (an OffersWrittenEvent) also drops the cached copy and any query results that may contain it.
+// Harmless no-ops when the second-level cache is disabled.
+@Component
+@RequiredArgsConstructor
+public class OfferCacheEvictor {
+
+  private final EntityManagerFactory entityManagerFactory;
+
+  @TransactionalEventListener
+  public void written(OffersWrittenEvent event) {
+    if (event.getType() != Type.CREATED) {
+      event.getOffers().forEach(this::evict);
+    }
+  }
+
+  private void evict(Offer offer) {
+    entityManagerFactory.getCache().evict(Offer.class, offer.getOfferId());
+    entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(Offer.QUERY_CACHE_REGION);
+  }
+
+}
@@ -0,0 +1,325 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferChange;
+import com.example.worldpay.model.OfferChange.Type;
+import com.example.worldpay.model.OfferExpiredEvent;
+import com.example.worldpay.model.OffersWrittenEvent;
+import com.example.worldpay.repository.OfferChangesRepository;
+import com.example.worldpay.tenant.MerchantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Records offer changes in the offer_change outbox and streams them to server-sent event subscribers.
+// Changes are written in the transaction that wrote the offers, so commit or roll back with them, and once committed
+// are kept in a ring buffer that live subscribers are served from. Transactions can commit out of sequence order, so
+// subscribers are only sent changes up to the first sequence still in flight, and never skip one committed late.
+// Each subscriber is drained by a small shared pool, never by the writer, through a bounded queue: the changes read
+// ahead of what it has been sent. One catching up (from Last-Event-ID or ?after) is replayed a queue at a time, from
+// the table once behind the buffer, at the pace it takes them. One that has caught up is disconnected if it falls more
+// than a queue behind, or if a send to it takes longer than the send timeout, and resumes with Last-Event-ID when it
+// reconnects. A thread blocked on a stalled client isn't counted against the pool until the container's write timeout
+// releases it, so a few stalled clients can't hold up every other subscriber.
+@Slf4j
+@Service
+public class OfferChangeFeed {
+
+  private final OfferChangesRepository repository;
+  private final TransactionTemplate transactionTemplate;
+  private final WorldpayProperties properties;
+  private final ThreadPoolExecutor dispatcher;
+  private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "offer-change-feed-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // held while sequences are allocated, which is in memory but for one sequence call per allocation
+  private final Object sequencing = new Object();
+
+  // guarded by buffer
+  private final NavigableMap<Long, OfferChange> buffer = new TreeMap<>();  // committed, by sequence
+  private final NavigableSet<Long> inFlight = new TreeSet<>();  // allocated, not yet committed or rolled back
+  private long evictedUpTo;  // every committed change after this is in the buffer
+  private volatile long latest;  // the last change subscribers can be sent
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+  public OfferChangeFeed(OfferChangesRepository repository, PlatformTransactionManager transactionManager,
+                         WorldpayProperties properties) {
+    this.repository = repository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.properties = properties;
+    AtomicInteger threads = new AtomicInteger();
+    int dispatchThreads = properties.getChanges().getDispatchThreads();
+    this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "offer-change-feed-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PostConstruct
+  void init() {
+    latest = repository.findTopByOrderBySequenceDesc().map(OfferChange::getSequence).orElse(0L);
+    evictedUpTo = latest;
+    long check = properties.getChanges().getSendTimeout().toMillis();  // so a stalled send is found within twice it
+    watchdog.scheduleWithFixedDelay(() -> subscribers.forEach(Subscriber::checkSend), check, check, TimeUnit.MILLISECONDS);
+  }
+
+  // both in the publisher's transaction
+
+  @EventListener
+  public void written(OffersWrittenEvent event) {
+    record(event.getType(), event.getMerchant(),
+        event.getOffers().stream().map(Offer::getOfferId).collect(Collectors.toList()));
+  }
+
+  @EventListener
+  public void expired(OfferExpiredEvent event) {
+    record(Type.EXPIRED, event.getMerchant(), Collections.singletonList(event.getOfferId()));
+  }
+
+  // in the caller's transaction if there is one; the changes reach subscribers once it has committed
+  private void record(Type type, String merchant, Collection<Long> offerIds) {
+    if (offerIds.isEmpty()) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+      transactionTemplate.execute(status -> {
+        record(type, merchant, offerIds);
+        return null;
+      });
+      return;
+    }
+    Instant now = Instant.now();
+    List<OfferChange> changes = offerIds.stream()
+        .map(offerId -> new OfferChange(type, offerId, merchant, now))
+        .collect(Collectors.toList());
+    synchronized (sequencing) {
+      repository.saveAll(changes);  // persisted, for the transaction to insert, with their sequences allocated
+      synchronized (buffer) {
+        changes.forEach(change -> inFlight.add(change.getSequence()));
+      }
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(int status) {
+        completed(changes, status == STATUS_COMMITTED);
+      }
+    });
+  }
+
+  private void completed(List<OfferChange> changes, boolean committed) {
+    synchronized (buffer) {
+      for (OfferChange change : changes) {
+        inFlight.remove(change.getSequence());
+        if (committed) {
+          buffer.put(change.getSequence(), change);
+        }
+      }
+      while (buffer.size() > properties.getChanges().getBufferSize()) {
+        evictedUpTo = buffer.pollFirstEntry().getKey();
+      }
+      Long last = buffer.lowerKey(horizon());
+      if (last != null && last > latest) {
+        latest = last;
+      }
+    }
+    subscribers.forEach(Subscriber::wake);
+  }
+
+  // changes before this have all committed or rolled back; guarded by buffer
+  private long horizon() {
+    return inFlight.isEmpty() ? Long.MAX_VALUE : inFlight.first();
+  }
+
+  // The merchant's (or with null, every merchant's), from the buffer if it goes back far enough, otherwise from the
+  // outbox by its (merchant, sequence) index, so a merchant's replay doesn't read through every other merchant's.
+  List<OfferChange> since(String merchant, long sequence, int limit) {
+    long horizon;
+    synchronized (buffer) {
+      horizon = horizon();
+      if (sequence >= evictedUpTo) {
+        return buffer.subMap(sequence, false, horizon, false).values().stream()
+            .filter(change -> merchant == null || merchant.equals(change.getMerchant()))
+            .limit(limit)
+            .collect(Collectors.toList());
+      }
+    }
+    PageRequest page = PageRequest.of(0, limit);
+    return merchant == null
+        ? repository.findBySequenceGreaterThanAndSequenceLessThanOrderBySequence(sequence, horizon, page)
+        : repository.findByMerchantAndSequenceGreaterThanAndSequenceLessThanOrderBySequence(merchant, sequence,
+            horizon, page);
+  }
+
+  // the current merchant's changes after the given sequence, or only new ones if it is null
+  public SseEmitter subscribe(Long after) {
+    SseEmitter emitter = new SseEmitter(properties.getChanges().getTimeout().toMillis());
+    Subscriber subscriber = new Subscriber(emitter, MerchantContext.get(), after == null ? latest : after);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    subscriber.wake();
+    return emitter;
+  }
+
+  // by one for each thread blocked on a stalled client, while it is
+  private void resizeDispatcher(int delta) {
+    synchronized (dispatcher) {
+      if (delta > 0) {
+        dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() + delta);
+        dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() + delta);
+      } else {
+        dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() + delta);
+        dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() + delta);
+      }
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    watchdog.shutdownNow();
+    dispatcher.shutdownNow();
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+  }
+
+  private final class Subscriber {
+
+    private final SseEmitter emitter;
+    private final String merchant;  // null for every merchant's
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long cursor;  // the last change sent
+    private volatile boolean live;  // has caught up with the feed
+
+    // guarded by this
+    private long sendStarted;
+    private boolean sending;
+    private boolean stalled;
+
+    Subscriber(SseEmitter emitter, String merchant, long cursor) {
+      this.emitter = emitter;
+      this.merchant = merchant;
+      this.cursor = cursor;
+    }
+
+    // at most one drain per subscriber is queued or running, so the pool's queue is bounded by the subscriber count
+    void wake() {
+      if (scheduled.compareAndSet(false, true)) {
+        dispatcher.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      try {
+        while (true) {
+          List<OfferChange> queue = next();
+          if (queue == null) {
+            log.debug("Dropping change feed subscriber more than a queue of changes behind");
+            subscribers.remove(this);
+            emitter.complete();  // for it to resume from the outbox
+            return;
+          }
+          if (queue.isEmpty()) {
+            break;
+          }
+          for (OfferChange change : queue) {
+            if (!send(change)) {
+              log.debug("Dropping change feed subscriber after a send took over {}",
+                  properties.getChanges().getSendTimeout());
+              emitter.complete();
+              return;
+            }
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        log.debug("Dropping change feed subscriber", e);  // usually a client that went away
+        subscribers.remove(this);
+        emitter.completeWithError(e);
+        return;
+      } finally {
+        scheduled.set(false);
+      }
+      if (cursor < latest) {
+        wake();  // recorded after the last read, whose wake was ignored
+      }
+    }
+
+    // up to a queue of the changes to send next; null if it had caught up and has since fallen further behind
+    private List<OfferChange> next() {
+      int queueSize = properties.getChanges().getSubscriberQueueSize();
+      long upTo = latest;  // read first: every change up to it has committed, so is in what since() reads
+      List<OfferChange> changes = since(merchant, cursor, queueSize + 1);
+      if (changes.size() <= queueSize) {
+        if (changes.isEmpty()) {
+          cursor = Math.max(cursor, upTo);  // past other merchants' changes, which since() doesn't return
+        }
+        live = true;
+        return changes;
+      }
+      return live ? null : changes.subList(0, queueSize);
+    }
+
+    // false if the send outlasted the timeout, when the subscriber has already been dropped
+    private boolean send(OfferChange change) throws IOException {
+      synchronized (this) {
+        sendStarted = System.nanoTime();
+        sending = true;
+      }
+      boolean timedOut;
+      try {
+        emitter.send(SseEmitter.event()
+            .id(String.valueOf(change.getSequence()))
+            .name(change.getType().name().toLowerCase(Locale.ROOT))
+            .data(change));
+      } finally {
+        synchronized (this) {
+          sending = false;
+          timedOut = stalled;
+          if (stalled) {
+            resizeDispatcher(-1);
+          }
+        }
+      }
+      cursor = change.getSequence();
+      return !timedOut;
+    }
+
+    // on the watchdog, so never waits on the emitter, whose lock the stalled send holds
+    synchronized void checkSend() {
+      if (sending && !stalled
+          && System.nanoTime() - sendStarted > properties.getChanges().getSendTimeout().toNanos()) {
+        stalled = true;
+        subscribers.remove(this);
+        resizeDispatcher(1);
+      }
+    }
+
+  }
+
+}
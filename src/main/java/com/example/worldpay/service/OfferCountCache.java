@@ -0,0 +1,125 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.model.OfferChange.Type;
+import com.example.worldpay.model.OffersWrittenEvent;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.tenant.MerchantContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Approximate offer count for listings that can tolerate a slightly stale page.totalElements, one per merchant.
+// Merchants come from a request header, so the counts are a bounded cache that drops those not asked for lately.
+@Slf4j
+@Component
+public class OfferCountCache {
+
+  private static final String ALL = "";  // outside a merchant's request
+
+  private final OffersRepository repository;
+  private final WorldpayProperties properties;
+
+  private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "offer-count-refresh");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final Cache<String, Count> counts;
+
+  public OfferCountCache(OffersRepository repository, WorldpayProperties properties) {
+    this.repository = repository;
+    this.properties = properties;
+    WorldpayProperties.CountCache countCache = properties.getCountCache();
+    this.counts = Caffeine.newBuilder()
+        .maximumSize(countCache.getMerchants())
+        .expireAfterAccess(countCache.getExpireAfterAccess().toMillis(), TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  // the current merchant's
+  public long get() {
+    String merchant = MerchantContext.get();
+    Count count = counts.get(merchant == null ? ALL : merchant, key -> new Count(merchant));
+    if (count.count < 0) {
+      count.refresh();  // nothing to serve yet, so the first caller pays for it
+    } else if (count.stale || System.currentTimeMillis() - count.refreshedAt > properties.getCountCache().getMaxAge().toMillis()) {
+      if (count.refreshing.compareAndSet(false, true)) {
+        refresher.execute(() -> {
+          try {
+            MerchantContext.callAs(merchant, count::refresh);
+          } finally {
+            count.refreshing.set(false);
+          }
+        });
+      }
+    }
+    return count.count;
+  }
+
+  public void invalidate() {
+    counts.asMap().values().forEach(count -> count.stale = true);
+  }
+
+  // once committed, so a refresh it triggers sees the change; an update doesn't change the count
+  @TransactionalEventListener
+  public void written(OffersWrittenEvent event) {
+    if (event.getType() != Type.UPDATED) {
+      invalidate(event.getMerchant());
+    }
+  }
+
+  private void invalidate(String merchant) {
+    for (String key : Arrays.asList(merchant, ALL)) {
+      Count count = counts.getIfPresent(key);
+      if (count != null) {
+        count.stale = true;
+      }
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    refresher.shutdownNow();
+  }
+
+  private final class Count {
+
+    private final String merchant;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long count = -1;
+    private volatile long refreshedAt;
+    private volatile boolean stale;
+
+    Count(String merchant) {
+      this.merchant = merchant;
+    }
+
+    // with the merchant's filter on, so on the thread of a request for it or in MerchantContext.callAs
+    private long refresh() {
+      stale = false;  // cleared first so a write racing with the count marks it stale again
+      try {
+        count = repository.count();
+        refreshedAt = System.currentTimeMillis();
+      } catch (RuntimeException e) {
+        stale = true;
+        log.warn("Failed to refresh offer count for {}", merchant == null ? "all merchants" : merchant, e);
+        if (count < 0) {
+          throw e;
+        }
+      }
+      return count;
+    }
+
+  }
+
+}
@@ -0,0 +1,118 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.model.OfferExpiredEvent;
+import com.example.worldpay.repository.OffersRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.example.worldpay.repository.InClauses.padded;
+import static java.time.temporal.ChronoUnit.MICROS;
+
+// Periodically records offers whose expiresAt has passed and publishes an OfferExpiredEvent for each,
+// a batch at a time, walking the (expiryRecordedAt, expiresAt) index rather than scanning the table.
+// The events are published in the transaction recording the expiries, so what listeners write in it (the change
+// feed's outbox) commits with the mark; listeners acting once committed are lost to a crash before they run.
+// Only the offers the sweep itself marks are published, so not one extended since it was found due, or marked by
+// another instance sweeping at the same time. A concurrent write that moves expiresAt clears the mark, so the offer
+// is swept again.
+@Slf4j
+@Service
+public class OfferExpirySweeper {
+
+  private final OffersRepository repository;
+  private final ApplicationEventPublisher publisher;
+  private final TransactionTemplate transactionTemplate;
+  private final WorldpayProperties properties;
+  private final Timer lag;
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "offer-expiry-sweeper");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public OfferExpirySweeper(OffersRepository repository, ApplicationEventPublisher publisher,
+                            PlatformTransactionManager transactionManager, WorldpayProperties properties,
+                            MeterRegistry registry) {
+    this.repository = repository;
+    this.publisher = publisher;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.properties = properties;
+    this.lag = Timer.builder("offers.expiry.lag")
+        .description("Time from an offer expiring to the sweeper publishing it")
+        .register(registry);
+  }
+
+  @PostConstruct
+  void start() {
+    WorldpayProperties.Expiry expiry = properties.getExpiry();
+    if (expiry.isEnabled()) {
+      long interval = expiry.getInterval().toMillis();
+      scheduler.scheduleWithFixedDelay(() -> {
+        try {
+          sweep();
+        } catch (RuntimeException e) {
+          log.warn("Offer expiry sweep failed", e);  // and try again next time
+        }
+      }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  // returns the number of offers published as expired
+  public int sweep() {
+    int batchSize = properties.getExpiry().getBatchSize();
+    Instant now = Instant.now().truncatedTo(MICROS);  // as the database stores it, for findRecordedExpiries
+    int swept = 0;
+    List<OfferExpiredEvent> due;
+    do {
+      due = repository.findDueExpiries(now, PageRequest.of(0, batchSize));
+      if (due.isEmpty()) {
+        break;
+      }
+      List<OfferExpiredEvent> found = due;
+      List<OfferExpiredEvent> recorded = transactionTemplate.execute(status -> record(found, now));
+      Instant published = Instant.now();
+      for (OfferExpiredEvent event : recorded) {
+        lag.record(Duration.between(event.getExpiresAt(), published));
+      }
+      swept += recorded.size();
+    } while (due.size() == batchSize);
+
+    if (swept > 0) {
+      log.debug("Published {} offer expiries", swept);
+    }
+    return swept;
+  }
+
+  // marks those of the offers found due that still are, and publishes just those
+  private List<OfferExpiredEvent> record(List<OfferExpiredEvent> due, Instant now) {
+    List<Long> offerIds = padded(due.stream().map(OfferExpiredEvent::getOfferId).collect(Collectors.toList()));
+    int marked = repository.markExpired(offerIds, now);
+    List<OfferExpiredEvent> recorded = marked == due.size() ? due : repository.findRecordedExpiries(offerIds, now);
+    recorded.forEach(publisher::publishEvent);
+    return recorded;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+}
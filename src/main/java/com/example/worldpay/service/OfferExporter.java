@@ -0,0 +1,79 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.repository.OffersRepository;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.hateoas.Link;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Writes every offer to a stream as it is read from a database cursor, holding at most one fetch's worth in memory.
+@Lazy  // created along with ExportOffersController, which with the fast-startup profile is on its first request
+@Service
+public class OfferExporter {
+
+  private final OffersRepository repository;
+  private final ObjectWriter writer;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  public OfferExporter(OffersRepository repository, ObjectMapper objectMapper) {
+    this.repository = repository;
+    this.writer = objectMapper.copy()
+        .addMixIn(Offer.class, ExportMixin.class)
+        .writerFor(Offer.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  // newline-delimited if not an array
+  @Transactional(readOnly = true)
+  public long export(OutputStream out, boolean array) throws IOException {
+    long count = 0;
+    try (Stream<Offer> offers = repository.streamAll();
+         JsonGenerator generator = writer.getFactory().createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      if (array) {
+        generator.writeStartArray();
+      }
+      for (Iterator<Offer> iterator = offers.iterator(); iterator.hasNext(); count++) {
+        Offer offer = iterator.next();
+        writer.writeValue(generator, offer);
+        if (!array) {
+          generator.writeRaw('\n');
+        }
+        entityManager.detach(offer);  // otherwise the persistence context grows with the table
+      }
+      if (array) {
+        generator.writeEndArray();
+      }
+    }
+    return count;
+  }
+
+  // the export has no links, so the id is needed to identify each offer
+  abstract static class ExportMixin {
+
+    @JsonProperty("id")
+    abstract long getOfferId();
+
+    @JsonIgnore
+    abstract List<Link> getLinks();
+
+  }
+
+}
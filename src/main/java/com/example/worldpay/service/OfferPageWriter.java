@@ -0,0 +1,111 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.tenant.MerchantScope;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.rest.webmvc.PersistentEntityResourceAssembler;
+import org.springframework.hateoas.ResourceSupport;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Writes a HAL page of offers, each with Spring Data REST's own serializer, as they are read from a database cursor,
+// so a large page holds one fetch's worth of offers at a time rather than every offer, its resource and its links.
+// The page's links and metadata depend on how many offers there were, so are built once they've been written.
+@Lazy  // only needed by ListOffersController
+@Service
+public class OfferPageWriter {
+
+  private static final String EMBEDDED = "_embedded";
+  private static final String REL = "offers";
+
+  private final MerchantScope merchantScope;
+  private final ObjectMapper objectMapper;
+  private final ObjectWriter writer;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  public OfferPageWriter(MerchantScope merchantScope,
+                         @Qualifier("halJacksonHttpMessageConverter") AbstractJackson2HttpMessageConverter hal) {
+    this.merchantScope = merchantScope;
+    this.objectMapper = hal.getObjectMapper();
+    this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  // the page's links and metadata, given the number of offers written and whether there are more after them
+  public interface Remainder {
+    ResourceSupport of(int offers, boolean hasNext);
+  }
+
+  // the current merchant's offers, in the pageable's order; one more is read than fits, to tell if there are more
+  @Transactional(readOnly = true)
+  public int write(Pageable pageable, PersistentEntityResourceAssembler assembler, Remainder remainder,
+                   OutputStream out) throws IOException {
+    merchantScope.enableFilter();
+    int offers = 0;
+    boolean hasNext = false;
+    try (Stream<Offer> rows = entityManager
+        .createQuery(QueryUtils.applySorting("select o from Offer o", pageable.getSort(), "o"), Offer.class)
+        .setFirstResult(Math.toIntExact(pageable.getOffset()))
+        .setMaxResults(pageable.getPageSize() + 1)
+        .getResultStream();
+         JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.writeStartObject();
+      generator.writeObjectFieldStart(EMBEDDED);
+      generator.writeArrayFieldStart(REL);
+      for (Iterator<Offer> iterator = rows.iterator(); iterator.hasNext(); ) {
+        Offer offer = iterator.next();
+        if (offers == pageable.getPageSize()) {
+          hasNext = true;
+          break;
+        }
+        writer.writeValue(generator, assembler.toFullResource(offer));
+        entityManager.detach(offer);
+        offers++;
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+      writeRemainder(remainder.of(offers, hasNext), generator);
+      generator.writeEndObject();
+    }
+    return offers;
+  }
+
+  // everything but the (empty) _embedded of the resource Spring Data REST would otherwise have written
+  private void writeRemainder(ResourceSupport resource, JsonGenerator generator) throws IOException {
+    TokenBuffer tokens = new TokenBuffer(objectMapper, false);
+    writer.writeValue(tokens, resource);
+    try (JsonParser parser = tokens.asParser()) {
+      parser.nextToken();  // its START_OBJECT
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        if (EMBEDDED.equals(parser.getCurrentName())) {
+          parser.nextToken();
+          parser.skipChildren();
+        } else {
+          generator.copyCurrentStructure(parser);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.model.OfferSummary;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Slice;
+import org.springframework.hateoas.Link;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+
+// Writes a HAL page of offer summaries in the shape of /offers, from JSON fragments cached per offer version.
+// Only what changes without a new version (the _expired/_active flags and the request's base URI) is written
+// per request, straight onto the generator: no Resource, Link or entity objects per row.
+@Lazy  // only needed by /offers?projection=summary
+@Service
+public class OfferSummaryRenderer {
+
+  private final JsonFactory factory;
+  private final ObjectWriter writer;
+  private final Cache<FragmentKey, String> fragments;
+
+  public OfferSummaryRenderer(ObjectMapper objectMapper, WorldpayProperties properties, MeterRegistry registry) {
+    this.factory = objectMapper.getFactory();
+    this.writer = objectMapper.writerFor(OfferSummary.class);
+    this.fragments = Caffeine.newBuilder()
+        .maximumSize(properties.getSummary().getFragmentCacheSize())
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(registry, fragments, "offer-fragments");
+  }
+
+  public void write(Slice<OfferSummary> slice, String offersUri, List<Link> links, OutputStream out) throws IOException {
+    Instant now = Instant.now();
+    try (JsonGenerator generator = factory.createGenerator(out)) {
+      generator.writeStartObject();
+
+      generator.writeObjectFieldStart("_embedded");
+      generator.writeArrayFieldStart("offers");
+      for (OfferSummary summary : slice) {
+        generator.writeRawValue(render(summary, offersUri, now));
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+
+      generator.writeObjectFieldStart("_links");
+      for (Link link : links) {
+        generator.writeObjectFieldStart(link.getRel());
+        generator.writeStringField("href", link.getHref());
+        generator.writeEndObject();
+      }
+      generator.writeEndObject();
+
+      generator.writeObjectFieldStart("page");
+      generator.writeNumberField("size", slice.getSize());
+      generator.writeNumberField("number", slice.getNumber());
+      generator.writeEndObject();
+
+      generator.writeEndObject();
+    }
+  }
+
+  // one offer as Spring Data REST would render it, given the URI of the offers collection
+  public String render(OfferSummary summary, String offersUri, Instant now) {
+    String fragment = fragments.get(new FragmentKey(summary.getOfferId(), summary.getVersion()), key -> fragment(summary));
+    String href = new StringBuilder(offersUri.length() + 20)
+        .append(JsonStringEncoder.getInstance().quoteAsString(offersUri)).append('/').append(summary.getOfferId())
+        .toString();
+    return new StringBuilder(fragment.length() + 2 * href.length() + 100)
+        .append(fragment)
+        .append(",\"_expired\":").append(summary.isExpiredAt(now))
+        .append(",\"_active\":").append(summary.isActiveAt(now))
+        .append(",\"_links\":{\"self\":{\"href\":\"").append(href)
+        .append("\"},\"offer\":{\"href\":\"").append(href)
+        .append("\"}}}")
+        .toString();
+  }
+
+  // the serialized summary without its closing brace, so more fields can follow
+  private String fragment(OfferSummary summary) {
+    try {
+      String json = writer.writeValueAsString(summary);
+      return json.substring(0, json.length() - 1);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Value
+  private static class FragmentKey {
+    private final long offerId;
+    private final long version;
+  }
+
+}
@@ -0,0 +1,213 @@
+package com.example.worldpay.service;
+
+import com.example.worldpay.WorldpayProperties;
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferChange.Type;
+import com.example.worldpay.model.OfferTerm;
+import com.example.worldpay.model.OffersWrittenEvent;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.tenant.MerchantScope;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.example.worldpay.repository.InClauses.padded;
+
+// Full-text search over offer descriptions, as an inverted index in the offer_term table ranked by tf-idf.
+// Kept up to date from OffersWrittenEvent, in the transaction that wrote the offers; anything else writing offers
+// directly leaves it stale until the next rebuild, which also runs on startup if the index is empty.
+@Slf4j
+@Service
+public class OfferTextIndex implements ApplicationRunner {
+
+  private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private final OffersRepository repository;
+  private final OfferCountCache countCache;
+  private final MerchantScope merchantScope;
+  private final TransactionTemplate transactionTemplate;
+  private final WorldpayProperties properties;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  public OfferTextIndex(OffersRepository repository, OfferCountCache countCache, MerchantScope merchantScope,
+                        PlatformTransactionManager transactionManager, WorldpayProperties properties) {
+    this.repository = repository;
+    this.countCache = countCache;
+    this.merchantScope = merchantScope;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.properties = properties;
+  }
+
+  // lower-cased letter and digit runs, with their number of occurrences
+  static Map<String, Integer> terms(String text) {
+    if (text == null) {
+      return Collections.emptyMap();
+    }
+    return SEPARATOR.splitAsStream(text.toLowerCase(Locale.ROOT))
+        .filter(term -> term.length() > 1 && term.length() <= OfferTerm.MAX_LENGTH)
+        .collect(Collectors.toMap(Function.identity(), term -> 1, Integer::sum));
+  }
+
+  // joins the caller's transaction, so the postings are written with the offer
+  public void add(Offer offer) {
+    terms(offer.getDescription()).forEach((term, frequency) ->
+        entityManager.persist(new OfferTerm(term, offer.getOfferId(), frequency)));
+  }
+
+  // in the publisher's transaction, so the postings commit or roll back with the offers
+  @EventListener
+  public void written(OffersWrittenEvent event) {
+    for (Offer offer : event.getOffers()) {
+      if (event.getType() != Type.CREATED) {
+        remove(offer.getOfferId());
+      }
+      if (event.getType() != Type.DELETED) {
+        add(offer);
+      }
+    }
+  }
+
+  private int remove(long offerId) {
+    return entityManager.createQuery("delete from OfferTerm t where t.offerId = :offerId")
+        .setParameter("offerId", offerId)
+        .executeUpdate();
+  }
+
+  // offers containing any of the query's terms, best match first
+  public Page<Offer> search(String query, Pageable pageable) {
+    List<String> terms = padded(terms(query).keySet());
+    if (terms.isEmpty()) {
+      return new PageImpl<>(Collections.emptyList(), pageable, 0);
+    }
+
+    // each joined to Offer, whose filter (see MerchantScope) keeps them to the current merchant's offers
+    return transactionTemplate.execute(status -> {
+      merchantScope.enableFilter();
+      List<Object[]> documentFrequencies = entityManager.createQuery(
+          "select t.term, count(t) from OfferTerm t, Offer o where o.offerId = t.offerId and t.term in :terms" +
+              " group by t.term", Object[].class)
+          .setParameter("terms", terms)
+          .getResultList();
+      if (documentFrequencies.isEmpty()) {
+        return new PageImpl<>(Collections.<Offer>emptyList(), pageable, 0);
+      }
+
+      // the weights are bound, cast as H2 cannot otherwise type a parameter in a CASE result
+      StringBuilder score = new StringBuilder("sum(t.frequency * case");
+      for (int i = 0; i < documentFrequencies.size(); i++) {
+        score.append(" when t.term = :term").append(i).append(" then cast(:weight").append(i).append(" as double)");
+      }
+      score.append(" else 0.0 end)");
+
+      TypedQuery<Object[]> ranked = entityManager.createQuery(
+          "select t.offerId, " + score + " as score from OfferTerm t, Offer o" +
+              " where o.offerId = t.offerId and t.term in :terms" +
+              " group by t.offerId order by score desc, t.offerId", Object[].class)
+          .setParameter("terms", terms);
+      double documents = Math.max(countCache.get(), 1);
+      for (int i = 0; i < documentFrequencies.size(); i++) {
+        long frequency = (Long) documentFrequencies.get(i)[1];
+        ranked.setParameter("term" + i, documentFrequencies.get(i)[0]);
+        ranked.setParameter("weight" + i, Math.log(1 + documents / frequency));
+      }
+      List<Long> ids = ranked
+          .setFirstResult((int) pageable.getOffset())
+          .setMaxResults(pageable.getPageSize())
+          .getResultList().stream()
+          .map(row -> (Long) row[0])
+          .collect(Collectors.toList());
+
+      long total = entityManager.createQuery(
+          "select count(distinct t.offerId) from OfferTerm t, Offer o where o.offerId = t.offerId and t.term in :terms",
+          Long.class)
+          .setParameter("terms", terms)
+          .getSingleResult();
+
+      Map<Long, Offer> offers = new HashMap<>();
+      repository.findAllById(padded(ids)).forEach(offer -> offers.put(offer.getOfferId(), offer));
+      List<Offer> content = ids.stream()
+          .map(offers::get)
+          .filter(Objects::nonNull)  // deleted without an event, until the next rebuild
+          .collect(Collectors.toList());
+      return new PageImpl<>(content, pageable, total);
+    });
+  }
+
+  // Every merchant's offers, a batch at a time in order of id, each batch's postings replaced in its own transaction,
+  // so no transaction grows with the number of offers and searches keep being served throughout. The postings of
+  // offers deleted without an event are dropped at the end.
+  public long rebuild() {
+    int batchSize = properties.getBulk().getBatchSize();
+    long indexed = 0;
+    List<Long> batch;
+    long after = 0;
+    do {
+      long from = after;
+      batch = transactionTemplate.execute(status -> reindex(from, batchSize));
+      indexed += batch.size();
+      if (!batch.isEmpty()) {
+        after = batch.get(batch.size() - 1);
+      }
+    } while (batch.size() == batchSize);
+    transactionTemplate.execute(status -> entityManager.createQuery(
+        "delete from OfferTerm t where not exists (select o.offerId from Offer o where o.offerId = t.offerId)")
+        .executeUpdate());
+    log.info("Rebuilt the text index for {} offers", indexed);
+    return indexed;
+  }
+
+  // the ids of the offers reindexed, up to batchSize of those after the given id
+  private List<Long> reindex(long after, int batchSize) {
+    Session session = entityManager.unwrap(Session.class);
+    session.disableFilter(Offer.MERCHANT_FILTER);  // if a request's EntityManager, every merchant's offers
+    session.setJdbcBatchSize(batchSize);
+    List<Offer> offers = entityManager.createQuery(
+        "select o from Offer o where o.offerId > :after order by o.offerId", Offer.class)
+        .setParameter("after", after)
+        .setMaxResults(batchSize)
+        .getResultList();
+    List<Long> offerIds = offers.stream().map(Offer::getOfferId).collect(Collectors.toList());
+    if (!offerIds.isEmpty()) {
+      entityManager.createQuery("delete from OfferTerm t where t.offerId in :offerIds")
+          .setParameter("offerIds", padded(offerIds))
+          .executeUpdate();
+      offers.forEach(this::add);
+    }
+    return offerIds;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    boolean lost = isEmpty() && !repository.findFirst(PageRequest.of(0, 1)).isEmpty();
+    if (lost || properties.getTextIndex().isRebuildOnStartup()) {
+      rebuild();
+    }
+  }
+
+  private boolean isEmpty() {
+    return entityManager.createQuery("select t.offerId from OfferTerm t")
+        .setMaxResults(1)
+        .getResultList()
+        .isEmpty();
+  }
+
+}
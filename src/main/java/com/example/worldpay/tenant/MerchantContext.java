@@ -0,0 +1,42 @@
+package com.example.worldpay.tenant;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// The merchant the current thread is working for, set from a request header by MerchantFilter.
+// Unset in background work (the expiry sweeper, metrics and so on), which sees every merchant's offers.
+public final class MerchantContext {
+
+  public static final String DEFAULT = "default";  // for requests without the header, and offers from before merchants
+  public static final int MAX_LENGTH = 64;
+  public static final Pattern VALID = Pattern.compile("[A-Za-z0-9._-]{1," + MAX_LENGTH + "}");
+
+  private static final ThreadLocal<String> MERCHANT = new ThreadLocal<>();
+
+  private MerchantContext() {
+  }
+
+  public static String get() {
+    return MERCHANT.get();
+  }
+
+  public static void set(String merchant) {
+    if (merchant == null) {
+      MERCHANT.remove();
+    } else {
+      MERCHANT.set(merchant);
+    }
+  }
+
+  // on a thread of our own, e.g. refreshing a merchant's count in the background
+  public static <T> T callAs(String merchant, Supplier<T> work) {
+    String previous = get();
+    set(merchant);
+    try {
+      return work.get();
+    } finally {
+      set(previous);
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+package com.example.worldpay.tenant;
+
+import com.example.worldpay.model.Offer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.Session;
+import org.springframework.data.rest.core.annotation.HandleBeforeCreate;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+// Keeps OffersRepository to the current merchant's offers, by enabling Offer's Hibernate filter on the session
+// each call runs in. Filters don't apply to loading by id, which OfferLookup checks instead, or to native SQL.
+@Aspect
+@Component
+@RepositoryEventHandler
+public class MerchantScope {
+
+  private final EntityManagerFactory entityManagerFactory;
+  private final PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  public MerchantScope(EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager) {
+    this.entityManagerFactory = entityManagerFactory;
+    this.transactionManager = transactionManager;
+  }
+
+  @Around("execution(* com.example.worldpay.repository.OffersRepository+.*(..))")
+  public Object scope(ProceedingJoinPoint call) throws Throwable {
+    if (MerchantContext.get() == null) {
+      return call.proceed();
+    }
+    if (TransactionSynchronizationManager.hasResource(entityManagerFactory)) {
+      enableFilter();  // the request's EntityManager (open-in-view, or ReadOnlyRequestFilter's transaction)
+      return call.proceed();
+    }
+
+    // otherwise the repository would open (and filter) nothing we could get at, so open its session here
+    TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+    Object result;
+    try {
+      enableFilter();
+      result = call.proceed();
+    } catch (Throwable e) {
+      transactionManager.rollback(status);
+      throw e;
+    }
+    transactionManager.commit(status);
+    return result;
+  }
+
+  // for queries on offers not made through the repository, inside a transaction
+  public void enableFilter() {
+    String merchant = MerchantContext.get();
+    if (merchant != null) {
+      entityManager.unwrap(Session.class).enableFilter(Offer.MERCHANT_FILTER).setParameter("merchant", merchant);
+    }
+  }
+
+  // A PUT to an id Spring Data REST didn't find (perhaps another merchant's) is a create: without its id, so that
+  // it's a persist, rather than a merge that would overwrite any offer with that id. Merging would only have
+  // generated a new id as well, when there isn't one.
+  @HandleBeforeCreate
+  public void creating(Offer offer) {
+    offer.setOfferId(0);
+  }
+
+}
@@ -0,0 +1,117 @@
+package db.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.configuration.ConfigurationAware;
+import org.flywaydb.core.api.configuration.FlywayConfiguration;
+import org.flywaydb.core.api.migration.spring.SpringJdbcMigration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static java.time.ZoneOffset.UTC;
+
+// Upgrades a database written before Period and Price had explicit column mappings, where (with ddl-auto=update)
+// Hibernate has added the new duration_* columns next to the old ones: the Java-serialized duration is unpacked into
+// them, a batch at a time, then the old column is dropped and currency/value are narrowed to CHAR(3)/DECIMAL, in
+// standard SQL (as H2 and PostgreSQL take it). A database these migrations created has no old column, so is left as is.
+// In Java rather than SQL only for the unpacking; it's as frozen as the SQL migrations, so uses nothing of the model's.
+@Slf4j
+public class V5__LegacyOfferColumns implements SpringJdbcMigration, ConfigurationAware {
+
+  // the placeholder (spring.flyway.placeholders.*) for the number of offers updated per JDBC batch
+  private static final String BATCH_SIZE = "legacy-columns-batch-size";
+
+  private int batchSize = 500;
+
+  @Override
+  public void setFlywayConfiguration(FlywayConfiguration configuration) {
+    String configured = configuration.getPlaceholders().get(BATCH_SIZE);
+    if (configured != null) {
+      batchSize = Integer.parseInt(configured);
+    }
+  }
+
+  @Override
+  public void migrate(JdbcTemplate jdbcTemplate) {
+    if (!hasColumn(jdbcTemplate, "offer", "duration")) {
+      return;
+    }
+
+    List<Object[]> batch = new ArrayList<>(batchSize);
+    int[] migrated = {0};
+    jdbcTemplate.query("select offer_id, created_at, duration from offer where duration is not null", rs -> {
+      Period duration = deserialize(rs.getBytes("duration"));
+      Timestamp createdAt = rs.getTimestamp("created_at");
+      Timestamp expiresAt = createdAt == null ? null : Timestamp.from(expiry(createdAt.toInstant(), duration));
+      batch.add(new Object[]{
+          duration.getYears(), duration.getMonths(), duration.getDays(), expiresAt, rs.getLong("offer_id")
+      });
+      if (batch.size() == batchSize) {
+        migrated[0] += flush(jdbcTemplate, batch);
+      }
+    });
+    migrated[0] += flush(jdbcTemplate, batch);
+
+    jdbcTemplate.execute("alter table offer drop column duration");
+    jdbcTemplate.execute("alter table offer alter column currency set data type char(3)");
+    jdbcTemplate.execute("alter table offer alter column value set data type decimal(19, 4)");
+
+    log.info("Migrated {} offers to columnar duration, currency and price", migrated[0]);
+  }
+
+  // from the driver's metadata rather than information_schema, whose layout differs between databases
+  private static boolean hasColumn(JdbcTemplate jdbcTemplate, String table, String column) {
+    return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+      DatabaseMetaData metaData = connection.getMetaData();
+      try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null,
+          identifier(metaData, table), identifier(metaData, column))) {
+        return columns.next();
+      }
+    });
+  }
+
+  // as the database stores an unquoted name
+  private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+    if (metaData.storesUpperCaseIdentifiers()) {
+      return name.toUpperCase(Locale.ROOT);
+    }
+    return metaData.storesLowerCaseIdentifiers() ? name.toLowerCase(Locale.ROOT) : name;
+  }
+
+  private static int flush(JdbcTemplate jdbcTemplate, List<Object[]> batch) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    jdbcTemplate.batchUpdate("update offer set duration_years = ?, duration_months = ?, duration_days = ?, " +
+        "expires_at = coalesce(expires_at, ?) where offer_id = ?", batch);
+    int size = batch.size();
+    batch.clear();
+    return size;
+  }
+
+  private static Instant expiry(Instant createdAt, Period duration) {
+    return LocalDateTime.ofInstant(createdAt, UTC).plus(duration).toInstant(UTC);
+  }
+
+  private static Period deserialize(byte[] bytes) {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return (Period) in.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new IllegalStateException("Unreadable legacy offer duration", e);
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+-- The schema Hibernate generated from the entities, for the fast-startup profile, which migrates rather than
+-- generating it on every start. A change to an entity's mapping needs a V<n>__*.sql here too: StartupTests
+-- validates the mappings against these.
+
+create sequence offer_id_seq start with 1 increment by 50;
+create sequence offer_change_seq start with 1 increment by 50;
+
+create table offer (
+  offer_id bigint not null,
+  merchant varchar(64) not null,
+  created_at timestamp,
+  version bigint not null,
+  last_modified_at timestamp,
+  description varchar(1024) not null,
+  description_key varchar(1024),
+  currency char(3) not null,
+  value decimal(19, 4) not null,
+  duration_years integer,
+  duration_months integer,
+  duration_days integer,
+  cancelled boolean not null,
+  expires_at timestamp,
+  expiry_recorded_at timestamp,
+  primary key (offer_id)
+);
+create index offer_merchant_offer_id on offer (merchant, offer_id);
+create index offer_merchant_expires_at on offer (merchant, expires_at);
+create index offer_merchant_created_at_offer_id on offer (merchant, created_at, offer_id);
+create index offer_merchant_cancelled_expires_at on offer (merchant, cancelled, expires_at);
+create index offer_merchant_currency_value on offer (merchant, currency, value);
+create index offer_merchant_description_key on offer (merchant, description_key);
+create index offer_expires_at on offer (expires_at);
+create index offer_cancelled_expires_at on offer (cancelled, expires_at);
+create index offer_expiry_recorded_at_expires_at on offer (expiry_recorded_at, expires_at);
+
+create table offer_term (
+  term varchar(64) not null,
+  offer_id bigint not null,
+  frequency integer not null,
+  primary key (term, offer_id)
+);
+create index offer_term_offer_id on offer_term (offer_id);
+
+create table offer_change (
+  sequence bigint not null,
+  type varchar(16),
+  offer_id bigint not null,
+  merchant varchar(64),
+  changed_at timestamp,
+  primary key (sequence)
+);
+
+create table idempotent_response (
+  merchant varchar(64) not null,
+  idempotency_key varchar(255) not null,
+  fingerprint varchar(64) not null,
+  created_at timestamp not null,
+  status integer not null,
+  version bigint,
+  headers clob,
+  body blob,
+  primary key (merchant, idempotency_key)
+);
+create index idempotent_response_created_at on idempotent_response (created_at);
@@ -0,0 +1,2 @@
+-- for a merchant's change feed replayed from the outbox (see OfferChangeFeed.since)
+create index offer_change_merchant_sequence on offer_change (merchant, sequence);
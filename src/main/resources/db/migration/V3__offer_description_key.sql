@@ -0,0 +1,3 @@
+-- description keys (see Offer.descriptionKey) for offers written before they existed, in a database Flyway took over
+-- at V2 (see spring.flyway.baseline-version); one these migrations created has none missing
+update offer set description_key = lower(description) where description_key is null and description is not null;
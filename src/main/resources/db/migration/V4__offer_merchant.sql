@@ -0,0 +1,3 @@
+-- offers written before merchants belong to the default one (MerchantContext.DEFAULT), in a database Flyway took
+-- over at V2 (see spring.flyway.baseline-version); one these migrations created has none without a merchant
+update offer set merchant = 'default' where merchant is null;
@@ -0,0 +1,124 @@
+package com.example.worldpay;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.OfferExpiredEvent;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.service.OfferExpirySweeper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.Period;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"worldpay.expiry.enabled=false", "worldpay.expiry.batch-size=2"})
+public class ExpirySweeperTests {
+
+  @Autowired
+  private OffersRepository repository;
+
+  @Autowired
+  private OfferExpirySweeper sweeper;
+
+  @Autowired
+  private Events events;
+
+  @Autowired
+  private MeterRegistry registry;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+  @TestConfiguration
+  static class Events {
+    final List<Long> expired = new CopyOnWriteArrayList<>();
+
+    @EventListener
+    void expired(OfferExpiredEvent event) {
+      expired.add(event.getOfferId());
+    }
+  }
+
+  private Offer save(String description, Period duration) {
+    return repository.save(new Offer(description, new Price(GBP, BigDecimal.ONE), duration, false));
+  }
+
+
+  @Test
+  public void sweep() {
+    save("expired", Period.ZERO);
+    save("active", Period.ofMonths(3));
+    save("also expired", Period.ZERO);
+    save("and another", Period.ZERO);
+
+    assertEquals(3, sweeper.sweep());
+    assertThat(events.expired, contains(1L, 3L, 4L));
+    assertThat(repository.findById(1L).get().getExpiryRecordedAt(), notNullValue());
+    assertThat(repository.findById(2L).get().getExpiryRecordedAt(), nullValue());
+    assertEquals(1, repository.findById(1L).get().getVersion());
+    assertEquals(0, repository.findById(2L).get().getVersion());
+    assertEquals(3, registry.get("offers.expiry.lag").timer().count());
+
+    events.expired.clear();
+    assertEquals(0, sweeper.sweep());
+    assertThat(events.expired, empty());
+  }
+
+  @Test
+  public void extended() {
+    save("expired", Period.ZERO);
+    assertEquals(1, sweeper.sweep());
+
+    Offer offer = repository.findById(1L).get();
+    offer.setDuration(Period.ofDays(1));
+    assertThat(repository.save(offer).getExpiryRecordedAt(), nullValue());
+
+    offer = repository.findById(1L).get();
+    offer.setDuration(Period.ZERO);
+    repository.save(offer);
+    events.expired.clear();
+    assertEquals(1, sweeper.sweep());
+    assertThat(events.expired, contains(1L));
+  }
+
+  @Test
+  public void extendedOnceFound() {
+    save("expired", Period.ZERO);
+    Instant found = Instant.now();
+
+    Offer offer = repository.findById(1L).get();
+    offer.setDuration(Period.ofDays(1));
+    repository.save(offer);
+
+    // as a sweep that found the offer due before it was extended would
+    assertEquals(0, (int) transactionTemplate.execute(status ->
+        repository.markExpired(Collections.singletonList(1L), found)));
+    assertThat(repository.findById(1L).get().getExpiryRecordedAt(), nullValue());
+  }
+
+}
@@ -0,0 +1,58 @@
+package com.example.worldpay;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class MetricsTests {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private OffersRepository repository;
+
+  @Test
+  @DirtiesContext
+  public void prometheus() throws Exception {
+    Currency gbp = Currency.getInstance("GBP");
+    repository.save(new Offer("foo", new Price(gbp, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(gbp, BigDecimal.ONE), Period.ofMonths(3), true));
+    repository.save(new Offer("baz", new Price(gbp, BigDecimal.ONE), Period.ofDays(0), false));
+    mockMvc.perform(get("/offers/1")).andExpect(status().isOk());
+
+    mockMvc.perform(get("/actuator/prometheus"))
+        .andExpect(status().isOk())
+        .andExpect(content().string(allOf(
+            containsString("offers_repository_seconds_count{exception=\"none\",method=\"findById\",}"),
+            containsString("offers{state=\"active\",} 1.0"),
+            containsString("offers{state=\"expired\",} 1.0"),
+            containsString("offers{state=\"cancelled\",} 1.0"),
+            containsString("http_server_requests_seconds_bucket{"),
+            containsString("hibernate_entities_inserts_total"),
+            containsString("hikaricp_connections_active")
+        )));
+  }
+
+}
@@ -0,0 +1,300 @@
+package com.example.worldpay;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.http.*;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Period;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+// Not run by `mvn test`: use `mvn -P load-test verify`, see pom.xml for the tunable properties.
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class OffersLoadIT {
+
+  private enum Operation { GET_ITEM, GET_PAGE, POST, PUT, DELETE }
+
+  private static final String OFFER = "{" +
+      "\"description\": \"load test\", " +
+      "\"price\": {\"currency\": \"GBP\", \"value\": %d}, " +
+      "\"duration\": \"P1D\"}";
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Autowired
+  private OffersRepository repository;
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Value("${load.offers:10000}")
+  private int offers;
+
+  @Value("${load.clients:32}")
+  private int clients;
+
+  @Value("${load.seconds:30}")
+  private int seconds;
+
+  @Value("${load.warmup-seconds:10}")
+  private int warmupSeconds;
+
+  @Value("${load.mix:GET_ITEM=50,GET_PAGE=20,POST=15,PUT=10,DELETE=5}")
+  private String mix;
+
+  @Value("${load.query-delay-ms:0}")
+  private long queryDelay;
+
+  private final AtomicLong maxId = new AtomicLong();
+
+  @Before
+  public void seed() {
+    List<Offer> seed = IntStream.range(0, offers)
+        .mapToObj(ii -> new Offer("seed", new Price(Currency.getInstance("GBP"), BigDecimal.TEN), Period.ofMonths(3), false))
+        .collect(Collectors.toList());
+    repository.saveAll(seed);
+    maxId.set(offers);
+  }
+
+  @Test
+  public void mixedLoad() throws Exception {
+    Operation[] weighted = parseMix(mix);
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+
+    long warmup = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+    List<Future<?>> warmups = new ArrayList<>();
+    for (int ii = 0; ii < clients; ii++) {
+      warmups.add(executor.submit(() -> drive(weighted, warmup)));  // results discarded, JIT and pools warm
+    }
+    for (Future<?> result : warmups) {
+      result.get();
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    List<Future<Map<Operation, Samples>>> results = new ArrayList<>();
+    for (int ii = 0; ii < clients; ii++) {
+      results.add(executor.submit(() -> drive(weighted, deadline)));
+    }
+    Map<Operation, Samples> merged = new EnumMap<>(Operation.class);
+    for (Future<Map<Operation, Samples>> result : results) {
+      result.get().forEach((operation, samples) -> merged.computeIfAbsent(operation, o -> new Samples()).addAll(samples));
+    }
+    executor.shutdown();
+
+    System.out.println(settings() + report(merged));
+    merged.forEach((operation, samples) -> assertEquals(operation + " server errors", 0, samples.serverErrors));
+  }
+
+  private Map<Operation, Samples> drive(Operation[] weighted, long deadline) {
+    Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (System.nanoTime() < deadline) {
+      Operation operation = weighted[random.nextInt(weighted.length)];
+      long start = System.nanoTime();
+      HttpStatus status = execute(operation, random);
+      samples.computeIfAbsent(operation, o -> new Samples()).add(System.nanoTime() - start, status);
+    }
+    return samples;
+  }
+
+  private HttpStatus execute(Operation operation, ThreadLocalRandom random) {
+    String offer = "/offers/" + random.nextLong(1, maxId.get() + 1);
+    switch (operation) {
+      case GET_ITEM:
+        return exchange(offer, HttpMethod.GET, null);
+      case GET_PAGE:
+        return exchange("/offers?size=20&page=" + random.nextInt(Math.max(1, offers / 20)), HttpMethod.GET, null);
+      case POST:
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> response = restTemplate.exchange(url("/offers"), HttpMethod.POST,
+            new HttpEntity<>(String.format(OFFER, random.nextInt(100)), headers), String.class);
+        URI location = response.getHeaders().getLocation();
+        if (location != null) {
+          String path = location.getPath();
+          maxId.accumulateAndGet(Long.parseLong(path.substring(path.lastIndexOf('/') + 1)), Math::max);
+        }
+        return response.getStatusCode();
+      case PUT:
+        return exchange(offer, HttpMethod.PUT, String.format(OFFER, random.nextInt(100)));
+      case DELETE:
+        return exchange(offer, HttpMethod.DELETE, null);
+      default:
+        throw new IllegalArgumentException(operation.name());
+    }
+  }
+
+  private HttpStatus exchange(String path, HttpMethod method, String body) {
+    HttpHeaders headers = new HttpHeaders();
+    if (body != null) {
+      headers.setContentType(MediaType.APPLICATION_JSON);
+    }
+    return restTemplate.exchange(url(path), method, new HttpEntity<>(body, headers), String.class).getStatusCode();
+  }
+
+  private URI url(String path) {
+    return URI.create("http://localhost:" + port + path);
+  }
+
+  private static Operation[] parseMix(String mix) {
+    List<Operation> weighted = new ArrayList<>();
+    for (String entry : mix.split(",")) {
+      String[] parts = entry.trim().split("=");
+      Operation operation = Operation.valueOf(parts[0].trim());
+      weighted.addAll(Collections.nCopies(Integer.parseInt(parts[1].trim()), operation));
+    }
+    return weighted.toArray(new Operation[0]);
+  }
+
+  // to compare runs with and without e.g. -Dspring.profiles.active=production
+  private String settings() throws SQLException {
+    return String.format("%nProfiles: %s, connection pool: %d, JDBC batch size: %s, request threads: %s, " +
+            "offload threads: %s, query delay: %dms%n",
+        Arrays.toString(environment.getActiveProfiles()),
+        dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize(),
+        environment.getProperty("spring.jpa.properties.hibernate.jdbc.batch_size", "none"),
+        environment.getProperty("server.tomcat.max-threads", "200"),
+        Arrays.asList(environment.getActiveProfiles()).contains("offload")
+            ? environment.getProperty("worldpay.offload.threads", "10") : "none",
+        queryDelay);
+  }
+
+  private String report(Map<Operation, Samples> results) {
+    StringBuilder report = new StringBuilder(String.format("%nLoad test: %d offers, %d clients, %ds%n", offers, clients, seconds));
+    report.append(String.format("%-9s %9s %7s %9s %9s %9s %9s %9s%n",
+        "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+    results.forEach((operation, samples) -> {
+      long[] sorted = samples.sorted();
+      report.append(String.format("%-9s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+          operation, sorted.length, samples.serverErrors, (double) sorted.length / seconds,
+          millis(sorted, 0.5), millis(sorted, 0.99), millis(sorted, 0.999), millis(sorted, 1.0)));
+    });
+    return report.toString();
+  }
+
+  private static double millis(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+
+  // raw latencies, so percentiles are exact rather than bucketed
+  private static class Samples {
+
+    private long[] nanos = new long[1024];
+    private int size;
+    private long serverErrors;
+
+    void add(long latency, HttpStatus status) {
+      if (size == nanos.length) {
+        nanos = Arrays.copyOf(nanos, size * 2);
+      }
+      nanos[size++] = latency;
+      if (status.is5xxServerError()) {
+        serverErrors++;
+      }
+    }
+
+    void addAll(Samples other) {
+      if (size + other.size > nanos.length) {
+        nanos = Arrays.copyOf(nanos, size + other.size);
+      }
+      System.arraycopy(other.nanos, 0, nanos, size, other.size);
+      size += other.size;
+      serverErrors += other.serverErrors;
+    }
+
+    long[] sorted() {
+      long[] sorted = Arrays.copyOf(nanos, size);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+
+  }
+
+  // With -Dload.query-delay-ms, every statement takes that much longer, as a remote or overloaded database would,
+  // so that the threads waiting on it (e.g. with and without the offload profile) can be compared at high concurrency.
+  @TestConfiguration
+  static class SlowDatabase {
+
+    @Bean
+    static BeanPostProcessor slowDatabasePostProcessor(Environment environment) {
+      long delay = environment.getProperty("load.query-delay-ms", Long.class, 0L);
+      return new BeanPostProcessor() {
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+          if (delay > 0 && bean instanceof HikariDataSource) {
+            HikariDataSource pool = (HikariDataSource) bean;
+            DataSource driver = new DriverManagerDataSource(pool.getJdbcUrl(), pool.getUsername(), pool.getPassword());
+            pool.setDataSource(delayed(driver, DataSource.class, delay));
+          }
+          return bean;
+        }
+      };
+    }
+
+    // sleeps before each execute, on statements from connections from the data source
+    private static <T> T delayed(T target, Class<T> type, long delay) {
+      return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+        if (Statement.class.isAssignableFrom(type) && method.getName().startsWith("execute")) {
+          Thread.sleep(delay);
+        }
+        Object result;
+        try {
+          result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+        Class<?> returned = method.getReturnType();
+        if (result != null && (returned == Connection.class || Statement.class.isAssignableFrom(returned))) {
+          @SuppressWarnings("unchecked")
+          Class<Object> resultType = (Class<Object>) returned;
+          return delayed(result, resultType, delay);
+        }
+        return result;
+      }));
+    }
+
+  }
+
+}
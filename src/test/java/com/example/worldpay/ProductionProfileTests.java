@@ -0,0 +1,94 @@
+package com.example.worldpay;
+
+import com.example.worldpay.datasource.JdbcSettingsCheck;
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.InClauses;
+import com.example.worldpay.repository.OffersRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("production")
+public class ProductionProfileTests {
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private JdbcSettingsCheck check;
+
+  @Autowired
+  private OffersRepository repository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Test
+  public void poolSizedByProcessors() throws Exception {
+    assertEquals(2 * Runtime.getRuntime().availableProcessors(),
+        dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize());
+  }
+
+  @Test
+  public void consistent() {
+    assertEquals(Collections.emptyList(), check.problems());
+  }
+
+  @Test
+  public void inconsistent() {
+    assertEquals(2, JdbcSettingsCheck.problems(Collections.singletonMap("hibernate.jdbc.batch_size", "50")).size());
+  }
+
+  @Test
+  public void batched() {
+    List<Offer> offers = IntStream.range(0, 120)
+        .mapToObj(ii -> new Offer("offer " + ii, new Price(Currency.getInstance("GBP"), BigDecimal.ONE), Period.ofDays(1), false))
+        .collect(Collectors.toList());
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    repository.saveAll(offers);
+    assertEquals(120, statistics.getEntityInsertCount());
+    // a statement per batch of 50 inserts and per sequence call (one per 50 ids), where unbatched it'd be 120 or more
+    assertThat(statistics.getPrepareStatementCount(), lessThan(12L));
+
+    List<Long> ids = offers.stream().map(Offer::getOfferId).collect(Collectors.toList());
+    List<Offer> found = new ArrayList<>();
+    repository.findAllById(InClauses.padded(ids)).forEach(found::add);
+    assertEquals(120, found.size());
+  }
+
+  @Test
+  public void padded() {
+    assertEquals(Collections.emptyList(), InClauses.padded(Collections.emptyList()));
+    assertEquals(Collections.singletonList(1), InClauses.padded(Collections.singletonList(1)));
+    assertEquals(Arrays.asList(1, 2, 3, 3), InClauses.padded(Arrays.asList(1, 2, 3)));
+    assertEquals(Arrays.asList(1, 2, 3, 4), InClauses.padded(Arrays.asList(1, 2, 3, 4)));
+    assertEquals(8, InClauses.padded(Arrays.asList(1, 2, 3, 4, 5)).size());
+  }
+
+}
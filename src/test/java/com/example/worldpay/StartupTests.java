@@ -0,0 +1,53 @@
+package com.example.worldpay;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static org.junit.Assert.*;
+
+// Starts the application as it's run, on a server, to check what the fast-startup profile changes. How long it takes
+// to start is measured by StartupTimeIT instead, with the load test, as that depends on the machine.
+public class StartupTests {
+
+  private static final String FAST_STARTUP = "--spring.profiles.active=fast-startup";
+
+  private static ConfigurableApplicationContext start(String... args) {
+    return new SpringApplicationBuilder(WorldpayApplication.class)
+        .properties("server.port=0")
+        .run(args);
+  }
+
+  @Test
+  public void migratedSchemaMatchesMappings() {
+    try (ConfigurableApplicationContext context = start(FAST_STARTUP, "--spring.jpa.hibernate.ddl-auto=validate")) {
+      assertEquals("5", context.getBean(Flyway.class).info().current().getVersion().getVersion());
+
+      OffersRepository repository = context.getBean(OffersRepository.class);
+      Offer offer = repository.save(new Offer("foo", new Price(Currency.getInstance("GBP"), BigDecimal.ONE),
+          Period.ofMonths(3), false));
+      assertEquals(Period.ofMonths(3), repository.findById(offer.getOfferId()).get().getDuration());
+    }
+  }
+
+  @Test
+  public void lazyControllers() {
+    try (ConfigurableApplicationContext context = start(FAST_STARTUP)) {
+      assertFalse(context.getBeanFactory().containsSingleton("exportOffersController"));
+      assertFalse(context.getBeanFactory().containsSingleton("offerExporter"));
+      assertTrue(context.getBeanFactory().containsSingleton("offerExpirySweeper"));
+    }
+    try (ConfigurableApplicationContext context = start()) {
+      assertTrue(context.getBeanFactory().containsSingleton("exportOffersController"));
+    }
+  }
+
+}
@@ -0,0 +1,50 @@
+package com.example.worldpay;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.Assert.assertTrue;
+
+// Not run by `mvn test`: use `mvn -P load-test verify`, with -Dstartup.runs=... for more starts of each.
+// Times starts of the application as it's run, on a server, without and with the fast-startup profile, taking the
+// quickest of each so that a slow outlier (e.g. a GC, or another process) doesn't decide it. Only fails if the profile
+// is slower by more than -Dstartup.tolerance (a fraction, 0.25 by default), as a few starts on a busy machine can't
+// tell closer times apart.
+@Slf4j
+public class StartupTimeIT {
+
+  private static final String FAST_STARTUP = "--spring.profiles.active=fast-startup";
+
+  private final int runs = Integer.getInteger("startup.runs", 3);
+  private final double tolerance = Double.parseDouble(System.getProperty("startup.tolerance", "0.25"));
+
+  private static long millisToStart(String... args) {
+    long started = System.nanoTime();
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(WorldpayApplication.class)
+        .properties("server.port=0")
+        .run(args)) {
+      return (System.nanoTime() - started) / 1_000_000;
+    }
+  }
+
+  private long quickest(String... args) {
+    long quickest = Long.MAX_VALUE;
+    for (int i = 0; i < runs; i++) {
+      quickest = Math.min(quickest, millisToStart(args));
+    }
+    return quickest;
+  }
+
+  @Test
+  public void fastStartupIsNoSlower() {
+    millisToStart();  // so that neither of the timed starts also pays for loading the classes they share
+    long generated = quickest();
+    long fast = quickest(FAST_STARTUP);
+    log.info("Started in {} ms, and in {} ms with the fast-startup profile", generated, fast);
+    assertTrue("fast-startup took " + fast + " ms, " + generated + " ms without it",
+        fast <= generated * (1 + tolerance));
+  }
+
+}
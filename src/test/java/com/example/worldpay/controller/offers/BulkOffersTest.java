@@ -0,0 +1,125 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.service.OfferCountCache;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = "worldpay.bulk.batch-size=2")
+public class BulkOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  @Autowired
+  private OfferCountCache countCache;
+
+  private static final String URL = "/offers/bulk";
+  private static final String OFFER = "{" +
+      "\"description\": \"%s\", " +
+      "\"price\": {\"currency\": \"GBP\", \"value\": 20}, " +
+      "\"duration\": \"P1D\"}";
+
+
+  @Test
+  public void array() throws Exception {
+    mockMvc.perform(post(URL)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[" + String.format(OFFER, "foo") + ", " + String.format(OFFER, "bar") + ", " + String.format(OFFER, "baz") + "]"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("created").value(3))
+        .andExpect(jsonPath("errors").value(empty()));
+
+    //noinspection unchecked
+    assertThat(repository.findAll(), containsInAnyOrder(
+        allOf(hasProperty("offerId", is(1L)), hasProperty("description", is("foo"))),
+        allOf(hasProperty("offerId", is(2L)), hasProperty("description", is("bar"))),
+        allOf(hasProperty("offerId", is(3L)), hasProperty("description", is("baz")))
+    ));
+  }
+
+  @Test
+  public void ndjson() throws Exception {
+    mockMvc.perform(post(URL)
+        .contentType("application/x-ndjson")
+        .content(String.format(OFFER, "foo") + "\n" + String.format(OFFER, "bar") + "\n"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("created").value(2))
+        .andExpect(jsonPath("errors").value(empty()));
+
+    assertThat(repository.findAll(), iterableWithSize(2));
+  }
+
+  @Test
+  public void invalidItems() throws Exception {
+    mockMvc.perform(post(URL)
+        .contentType("application/x-ndjson")
+        .content(String.format(OFFER, "foo") + "\n" +
+            "{\"description\": \"\", \"price\": {\"currency\": \"GBP\", \"value\": -1}, \"duration\": \"P1D\"}\n" +
+            "{\"description\": \"bar\", \"price\": {\"currency\": \"ZZZ\", \"value\": 1}, \"duration\": \"P1D\"}\n" +
+            String.format(OFFER, "baz") + "\n"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("created").value(2))
+        .andExpect(jsonPath("errors").value(hasSize(2)))
+        .andExpect(jsonPath("errors[0].index").value(1))
+        .andExpect(jsonPath("errors[0].messages").value(contains(
+            startsWith("description: "),
+            startsWith("price.value: ")
+        )))
+        .andExpect(jsonPath("errors[1].index").value(2));
+
+    assertThat(repository.findAll(), containsInAnyOrder(
+        hasProperty("description", is("foo")),
+        hasProperty("description", is("baz"))
+    ));
+  }
+
+  @Test
+  public void malformed() throws Exception {
+    mockMvc.perform(post(URL)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[" + String.format(OFFER, "foo") + ", {\"description\": }]"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("created").value(1))
+        .andExpect(jsonPath("errors[0].index").value(1));
+  }
+
+  @Test
+  public void cachedCount() throws Exception {
+    assertEquals(0, countCache.get());
+
+    mockMvc.perform(post(URL)
+        .contentType("application/x-ndjson")
+        .content(String.format(OFFER, "foo") + "\n" + String.format(OFFER, "bar") + "\n" + String.format(OFFER, "baz") + "\n"))
+        .andExpect(status().isOk());
+
+    // each batch marks the count stale, and it's refreshed in the background
+    for (int i = 0; i < 50 && countCache.get() != 3; i++) {
+      Thread.sleep(100);
+    }
+    assertEquals(3, countCache.get());
+  }
+
+}
@@ -0,0 +1,91 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("cache")
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class CachedOfferTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String URL = "/offers/{id}";
+  private static final String REGION = Offer.CACHE_REGION;
+
+  @Before
+  public void createOffer() {
+    repository.save(new Offer("foo", new Price(Currency.getInstance("GBP"), BigDecimal.ONE), Period.ofMonths(3), false));
+  }
+
+
+  @Test
+  public void hit() throws Exception {
+    mockMvc.perform(get(URL, "1")).andExpect(status().isOk());
+    mockMvc.perform(get(URL, "1")).andExpect(status().isOk());
+
+    mockMvc.perform(get("/stats/cache"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath(REGION + ".CacheHits").value(greaterThan(0)));
+  }
+
+  @Test
+  public void patchedOffer() throws Exception {
+    mockMvc.perform(get(URL, "1"))
+        .andExpect(jsonPath("description").value("foo"));
+
+    mockMvc.perform(patch(URL, "1")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"description\": \"bar\"}"))
+        .andExpect(status().isNoContent());
+
+    mockMvc.perform(get(URL, "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("description").value("bar"));
+    mockMvc.perform(get("/offers"))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("bar"));
+  }
+
+  @Test
+  public void deletedOffer() throws Exception {
+    mockMvc.perform(get(URL, "1")).andExpect(status().isOk());
+    mockMvc.perform(get("/offers")).andExpect(jsonPath("page.totalElements").value(1));
+
+    mockMvc.perform(delete(URL, "1"))
+        .andExpect(status().isNoContent());
+
+    mockMvc.perform(get(URL, "1")).andExpect(status().isNotFound());
+    mockMvc.perform(get("/offers")).andExpect(jsonPath("page.totalElements").value(0));
+  }
+
+}
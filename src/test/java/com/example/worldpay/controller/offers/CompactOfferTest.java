@@ -0,0 +1,115 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static com.example.worldpay.controller.CompactHttpMessageConverter.*;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.*;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class CompactOfferTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+  @Before
+  public void createOffers() {
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(GBP, BigDecimal.TEN), Period.ofDays(1), false));
+  }
+
+  private JsonNode read(String url, String accept, ObjectMapper mapper) throws Exception {
+    byte[] body = mockMvc.perform(get(url).accept(accept))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(accept))
+        .andReturn().getResponse().getContentAsByteArray();
+    return mapper.readTree(body);
+  }
+
+
+  @Test
+  public void compactJson() throws Exception {
+    mockMvc.perform(get("/offers/1").accept(COMPACT_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(COMPACT_JSON_VALUE))
+        .andExpect(jsonPath("description").value("foo"))
+        .andExpect(jsonPath("price.value").value(1.00))
+        .andExpect(jsonPath("duration").value("P3M"))
+        .andExpect(jsonPath("_active").value(true))
+        .andExpect(jsonPath("_links.self.href").value("http://localhost/offers/1"))
+        .andExpect(jsonPath("_links.offer").doesNotExist())
+    ;
+  }
+
+  @Test
+  public void page() throws Exception {
+    mockMvc.perform(get("/offers").accept(COMPACT_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers.length()").value(2))
+        .andExpect(jsonPath("_embedded.offers[*]._links.self.href").value(contains(
+            "http://localhost/offers/1", "http://localhost/offers/2")))
+        .andExpect(jsonPath("_embedded.offers[0]._links.offer").doesNotExist())
+        .andExpect(jsonPath("_links.self.href").exists())
+        .andExpect(jsonPath("_links.profile").doesNotExist())
+        .andExpect(jsonPath("page.totalElements").value(2))
+    ;
+  }
+
+  @Test
+  public void smile() throws Exception {
+    JsonNode page = read("/offers", SMILE_VALUE, new ObjectMapper(new SmileFactory()));
+    assertEquals(2, page.path("_embedded").path("offers").size());
+    assertEquals("foo", page.path("_embedded").path("offers").path(0).path("description").asText());
+    assertEquals("http://localhost/offers/1",
+        page.path("_embedded").path("offers").path(0).path("_links").path("self").path("href").asText());
+    assertFalse(page.path("_embedded").path("offers").path(0).path("_links").has("offer"));
+    assertFalse(page.path("_links").has("profile"));
+  }
+
+  @Test
+  public void cbor() throws Exception {
+    JsonNode offer = read("/offers/2", CBOR_VALUE, new ObjectMapper(new CBORFactory()));
+    assertEquals("bar", offer.path("description").asText());
+    assertEquals(0, BigDecimal.TEN.compareTo(offer.path("price").path("value").decimalValue()));
+    assertEquals("http://localhost/offers/2", offer.path("_links").path("self").path("href").asText());
+  }
+
+  @Test
+  public void halByDefault() throws Exception {
+    mockMvc.perform(get("/offers/1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_links.self.href").value("http://localhost/offers/1"))
+    ;
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+
+// compression is Tomcat's, so this needs a server rather than MockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class CompressedOffersTest {
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+  @Before
+  public void createOffers() {
+    for (int i = 0; i < 50; i++) {
+      repository.save(new Offer("offer " + i, new Price(GBP, BigDecimal.valueOf(i)), Period.ofDays(1), false));
+    }
+  }
+
+  private ResponseEntity<byte[]> get(String url, String acceptEncoding) {
+    HttpHeaders headers = new HttpHeaders();
+    if (acceptEncoding != null) {
+      headers.set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+    }
+    return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+  }
+
+
+  @Test
+  public void gzipped() throws IOException {
+    ResponseEntity<byte[]> response = get("/offers?size=50&count=none", "gzip");
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    JsonNode page = new ObjectMapper().readTree(new GZIPInputStream(new ByteArrayInputStream(response.getBody())));
+    assertEquals(50, page.path("_embedded").path("offers").size());
+  }
+
+  @Test
+  public void notAccepted() throws IOException {
+    ResponseEntity<byte[]> response = get("/offers?size=50&count=none", null);
+
+    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(50, new ObjectMapper().readTree(response.getBody()).path("_embedded").path("offers").size());
+  }
+
+  @Test
+  public void small() {
+    ResponseEntity<byte[]> response = get("/offers/1", "gzip");
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+  }
+
+}
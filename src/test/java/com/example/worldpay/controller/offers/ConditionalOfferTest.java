@@ -0,0 +1,111 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class ConditionalOfferTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String URL = "/offers/{id}";
+  private static final String BODY = "{" +
+      "\"description\": \"foo\", " +
+      "\"price\": {\"currency\": \"USD\", \"value\": 1}, " +
+      "\"duration\": \"P3M\"," +
+      "\"cancelled\": true}";
+
+  @Before
+  public void createOffer() {
+    repository.save(new Offer("foo", new Price(Currency.getInstance("USD"), BigDecimal.ONE), Period.ofMonths(3), false));
+  }
+
+
+  @Test
+  public void etag() throws Exception {
+    mockMvc.perform(get(URL, "1"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+        .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+  }
+
+  @Test
+  public void notModified() throws Exception {
+    mockMvc.perform(get(URL, "1").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+        .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+        .andExpect(content().string(""));
+  }
+
+  @Test
+  public void modified() throws Exception {
+    mockMvc.perform(put(URL, "1")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(BODY))
+        .andExpect(status().isNoContent());
+
+    mockMvc.perform(get(URL, "1").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+  }
+
+  @Test
+  public void notFound() throws Exception {
+    mockMvc.perform(get(URL, "2").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void preconditionFailed() throws Exception {
+    mockMvc.perform(put(URL, "1")
+        .header(HttpHeaders.IF_MATCH, "\"5\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(BODY))
+        .andExpect(status().isPreconditionFailed());
+
+    assertEquals(0, repository.findById(1L).map(Offer::getVersion).orElse(-1L).longValue());
+  }
+
+  @Test
+  public void preconditionMet() throws Exception {
+    mockMvc.perform(put(URL, "1")
+        .header(HttpHeaders.IF_MATCH, "\"0\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(BODY))
+        .andExpect(status().isNoContent())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+  }
+
+}
@@ -0,0 +1,98 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class ExportOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String URL = "/offers/export";
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+
+  @Test
+  public void empty() throws Exception {
+    mockMvc.perform(get(URL))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andExpect(content().string(""));
+  }
+
+  @Test
+  public void malformedAccept() throws Exception {
+    mockMvc.perform(get(URL).header(HttpHeaders.ACCEPT, "application/json;q=x, /"))
+        .andExpect(status().isNotAcceptable());
+  }
+
+  @Test
+  @DirtiesContext
+  public void ndjson() throws Exception {
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(GBP, BigDecimal.TEN), Period.ofDays(14), true));
+
+    String[] lines = mockMvc.perform(get(URL))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andReturn().getResponse().getContentAsString().split("\n");
+
+    assertEquals(2, lines.length);
+    assertThat(lines[0], allOf(
+        startsWith("{"),
+        containsString("\"id\":1"),
+        containsString("\"description\":\"foo\""),
+        containsString("\"_active\":true"),
+        not(containsString("links"))
+    ));
+    assertThat(lines[1], containsString("\"description\":\"bar\""));
+  }
+
+  @Test
+  @DirtiesContext
+  public void json() throws Exception {
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(GBP, BigDecimal.TEN), Period.ofDays(14), true));
+
+    mockMvc.perform(get(URL).accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(jsonPath("$").value(hasSize(2)))
+        .andExpect(jsonPath("$[0].id").value(1))
+        .andExpect(jsonPath("$[0].description").value("foo"))
+        .andExpect(jsonPath("$[0].price.currency").value("GBP"))
+        .andExpect(jsonPath("$[0].duration").value("P3M"))
+        .andExpect(jsonPath("$[1].id").value(2))
+        .andExpect(jsonPath("$[1].cancelled").value(true));
+  }
+
+}
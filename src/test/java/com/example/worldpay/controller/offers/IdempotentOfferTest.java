@@ -0,0 +1,244 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.IdempotentResponse;
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.IdempotentResponsesRepository;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.service.IdempotencyStore;
+import com.example.worldpay.tenant.MerchantContext;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.example.worldpay.controller.IdempotencyFilter.HEADER;
+import static com.example.worldpay.controller.IdempotencyFilter.REPLAYED;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class IdempotentOfferTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  @Autowired
+  private IdempotentResponsesRepository responses;
+
+  @Autowired
+  private IdempotencyStore store;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private static final String URL = "/offers";
+
+  private static final String OFFER = "{" +
+      "\"description\": \"%s\", " +
+      "\"price\": {\"currency\": \"GBP\", \"value\": 20}, " +
+      "\"duration\": \"P1D\"}";
+
+  private static MockHttpServletRequestBuilder create(String key, String description) {
+    return post(URL).header(HEADER, key)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(String.format(OFFER, description));
+  }
+
+
+  @Test
+  public void replayed() throws Exception {
+    mockMvc.perform(create("abc", "foo"))
+        .andExpect(status().isCreated())
+        .andExpect(header().string("Location", "http://localhost/offers/1"))
+        .andExpect(header().doesNotExist(REPLAYED));
+    mockMvc.perform(create("abc", "foo"))
+        .andExpect(status().isCreated())
+        .andExpect(header().string("Location", "http://localhost/offers/1"))
+        .andExpect(header().string(REPLAYED, "true"));
+
+    assertEquals(1, repository.count());
+  }
+
+  @Test
+  public void differentKeys() throws Exception {
+    mockMvc.perform(create("abc", "foo"))
+        .andExpect(status().isCreated());
+    mockMvc.perform(create("def", "foo"))
+        .andExpect(status().isCreated())
+        .andExpect(header().string("Location", "http://localhost/offers/2"));
+    mockMvc.perform(post(URL).contentType(MediaType.APPLICATION_JSON).content(String.format(OFFER, "foo")))
+        .andExpect(status().isCreated());
+
+    assertEquals(3, repository.count());
+  }
+
+  @Test
+  public void perMerchant() throws Exception {
+    mockMvc.perform(create("abc", "foo").header("X-Merchant-Id", "acme"))
+        .andExpect(status().isCreated());
+    mockMvc.perform(create("abc", "foo").header("X-Merchant-Id", "globex"))
+        .andExpect(status().isCreated())
+        .andExpect(header().doesNotExist(REPLAYED));
+
+    assertEquals(2, repository.count());
+  }
+
+  @Test
+  public void differentRequest() throws Exception {
+    mockMvc.perform(create("abc", "foo"))
+        .andExpect(status().isCreated());
+    mockMvc.perform(create("abc", "bar"))
+        .andExpect(status().isUnprocessableEntity());
+
+    assertEquals(1, repository.count());
+  }
+
+  @Test
+  public void failureNotStored() throws Exception {
+    mockMvc.perform(post(URL).header(HEADER, "abc")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"description\": \"foo\", \"price\": {\"currency\": \"X\", \"value\": 20}, \"duration\": \"P1D\"}"))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(create("abc", "foo"))
+        .andExpect(status().isCreated())
+        .andExpect(header().doesNotExist(REPLAYED));
+
+    assertEquals(1, repository.count());
+  }
+
+  @Test
+  public void invalidKey() throws Exception {
+    mockMvc.perform(create(String.join("", Collections.nCopies(256, "k")), "foo"))
+        .andExpect(status().isBadRequest());
+
+    assertEquals(0, repository.count());
+  }
+
+  // each either creates the offer, replays it, or finds it still being created and is told to retry
+  @Test
+  public void concurrentDuplicates() throws Exception {
+    ExecutorService clients = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        Callable<MockHttpServletResponse> request = () -> mockMvc.perform(create("abc", "foo"))
+            .andReturn().getResponse();
+        responses.add(clients.submit(request));
+      }
+      for (Future<MockHttpServletResponse> response : responses) {
+        if (response.get().getStatus() == HttpStatus.CONFLICT.value()) {
+          assertThat(response.get().getHeader(HttpHeaders.RETRY_AFTER), notNullValue());
+        } else {
+          assertEquals(HttpStatus.CREATED.value(), response.get().getStatus());
+          assertThat(response.get().getHeader("Location"), is("http://localhost/offers/1"));
+        }
+      }
+    } finally {
+      clients.shutdownNow();
+    }
+
+    assertEquals(1, repository.count());
+  }
+
+  // reserved by a request that never completed, longer ago than the lease but not the TTL
+  @Test
+  public void abandoned() throws Exception {
+    responses.save(new IdempotentResponse(new IdempotentResponse.Key(MerchantContext.DEFAULT, "abc"),
+        String.join("", Collections.nCopies(64, "0")), Instant.now().minus(Duration.ofMinutes(2))));
+
+    mockMvc.perform(create("abc", "foo"))
+        .andExpect(status().isCreated())
+        .andExpect(header().doesNotExist(REPLAYED));
+
+    assertEquals(1, repository.count());
+  }
+
+  // the process dying before the request's transaction commits loses the offer along with the response, so a retry
+  // once the lease has expired (as in abandoned) creates the only one
+  @Test
+  public void diedBeforeCompleted() {
+    IdempotentResponse.Key key = new IdempotentResponse.Key(MerchantContext.DEFAULT, "abc");
+    IdempotentResponse reservation = store.reserve(key, String.join("", Collections.nCopies(64, "0"))).get();
+
+    transactionTemplate.execute(status -> {
+      repository.save(offer());
+      store.complete(completed(reservation));
+      status.setRollbackOnly();
+      return null;
+    });
+
+    assertEquals(0, repository.count());
+    assertFalse(store.find(key).get().isCompleted());
+  }
+
+  // reclaimed by a retry once the lease expired, so the retry's offer is the only one
+  @Test
+  public void reclaimedBeforeCompleted() {
+    IdempotentResponse.Key key = new IdempotentResponse.Key(MerchantContext.DEFAULT, "abc");
+    IdempotentResponse reservation = store.reserve(key, String.join("", Collections.nCopies(64, "0"))).get();
+    IdempotentResponse reclaimed = responses.findById(key).get();
+    reclaimed.setCreatedAt(Instant.now());
+    responses.save(reclaimed);
+
+    try {
+      transactionTemplate.execute(status -> {
+        repository.save(offer());
+        store.complete(completed(reservation));
+        return null;
+      });
+    } catch (OptimisticLockingFailureException e) {
+      // rolling back the offer with it
+    }
+
+    assertEquals(0, repository.count());
+    assertFalse(responses.findById(key).get().isCompleted());
+  }
+
+  private static Offer offer() {
+    return new Offer("foo", new Price(Currency.getInstance("GBP"), BigDecimal.valueOf(20)), Period.ofDays(1), false);
+  }
+
+  private static IdempotentResponse completed(IdempotentResponse reservation) {
+    reservation.setStatus(HttpStatus.CREATED.value());
+    reservation.setHeaders("");
+    reservation.setBody(new byte[0]);
+    return reservation;
+  }
+
+}
@@ -0,0 +1,101 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import db.migration.V5__LegacyOfferColumns;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.Period;
+import java.util.Currency;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class LegacyColumnsOfferTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+
+  @Test
+  public void columns() throws Exception {
+    repository.save(new Offer("foo", new Price(GBP, new BigDecimal("1.125")), Period.of(1, 2, 3), false));
+    new V5__LegacyOfferColumns().migrate(jdbcTemplate);  // nothing to do
+
+    Map<String, Object> row = jdbcTemplate.queryForMap(
+        "select currency, value, duration_years, duration_months, duration_days from offer");
+    assertEquals("GBP", row.get("CURRENCY"));
+    assertEquals(new BigDecimal("1.1250"), row.get("VALUE"));
+    assertEquals(1, row.get("DURATION_YEARS"));
+    assertEquals(2, row.get("DURATION_MONTHS"));
+    assertEquals(3, row.get("DURATION_DAYS"));
+
+    mockMvc.perform(get("/offers/1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("price.value").value(1.125))
+        .andExpect(jsonPath("duration").value("P1Y2M3D"));
+  }
+
+  @Test
+  public void migrated() throws Exception {
+    // as left by ddl-auto=update on a table that already has rows
+    jdbcTemplate.execute("alter table offer add column duration varbinary(255)");
+    jdbcTemplate.execute("alter table offer alter column duration_years set null");
+    jdbcTemplate.execute("alter table offer alter column duration_months set null");
+    jdbcTemplate.execute("alter table offer alter column duration_days set null");
+    jdbcTemplate.update("insert into offer (offer_id, merchant, created_at, version, last_modified_at, description, " +
+            "currency, value, cancelled, duration) values (1, 'default', ?, 0, ?, 'foo', 'GBP', 10, false, ?)",
+        Timestamp.from(Instant.now()), Timestamp.from(Instant.now()), serialize(Period.ofMonths(3)));
+
+    new V5__LegacyOfferColumns().migrate(jdbcTemplate);
+
+    mockMvc.perform(get("/offers/1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("description").value("foo"))
+        .andExpect(jsonPath("duration").value("P3M"))
+        .andExpect(jsonPath("_active").value(true));
+    assertEquals(0, (int) jdbcTemplate.queryForObject(
+        "select count(*) from information_schema.columns where table_name = 'OFFER' and column_name = 'DURATION'",
+        Integer.class));
+  }
+
+  private static byte[] serialize(Period period) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(period);
+    }
+    return bytes.toByteArray();
+  }
+
+}
@@ -164,4 +164,76 @@ public class ListOffersTest {
     ;
   }
 
+  @Test
+  public void emptyCountedPage() throws Exception {
+    mockMvc.perform(get(URL + "?count=exact"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(0)))
+        .andExpect(jsonPath("page.totalElements").value(0))
+    ;
+  }
+
+  @Test
+  @DirtiesContext
+  public void uncountedFirstPage() throws Exception {
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(GBP, BigDecimal.TEN), Period.ofDays(14), true));
+
+    mockMvc.perform(get(URL + "?size=1&count=none"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(1)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("foo"))
+        .andExpect(jsonPath("_embedded.offers[0]._links.self.href").value("http://localhost/offers/1"))
+        .andExpect(jsonPath("_links.prev").doesNotExist())
+        .andExpect(jsonPath("_links.next.href").value(allOf(
+            startsWith("http://localhost/offers?"),
+            containsString("count=none"),
+            containsString("size=1"),
+            containsString("page=1")
+        )))
+        .andExpect(jsonPath("page.size").value(1))
+        .andExpect(jsonPath("page.number").value(0))
+        .andExpect(jsonPath("page.totalElements").doesNotExist())
+        .andExpect(jsonPath("page.totalPages").doesNotExist())
+    ;
+  }
+
+  @Test
+  @DirtiesContext
+  public void uncountedLastPage() throws Exception {
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(GBP, BigDecimal.TEN), Period.ofDays(14), true));
+
+    mockMvc.perform(get(URL + "?size=1&page=1&count=none"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(1)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("bar"))
+        .andExpect(jsonPath("_links.next").doesNotExist())
+        .andExpect(jsonPath("_links.prev.href").value(containsString("page=0")))
+        .andExpect(jsonPath("page.number").value(1))
+        .andExpect(jsonPath("page.totalElements").doesNotExist())
+    ;
+  }
+
+  @Test
+  @DirtiesContext
+  public void cachedCount() throws Exception {
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(GBP, BigDecimal.TEN), Period.ofDays(14), true));
+
+    mockMvc.perform(get(URL + "?size=1&count=cached"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(1)))
+        .andExpect(jsonPath("_links.next.href").value(containsString("page=1")))
+        .andExpect(jsonPath("page.totalElements").value(2))
+        .andExpect(jsonPath("page.totalPages").value(2))
+    ;
+  }
+
+  @Test
+  public void unknownCount() throws Exception {
+    mockMvc.perform(get(URL + "?count=maybe"))
+        .andExpect(status().isBadRequest());
+  }
+
 }
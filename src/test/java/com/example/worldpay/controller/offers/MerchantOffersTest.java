@@ -0,0 +1,129 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static com.example.worldpay.controller.MerchantFilter.HEADER;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class MerchantOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String OFFER = "{" +
+      "\"description\": \"%s\", " +
+      "\"price\": {\"currency\": \"GBP\", \"value\": 20}, " +
+      "\"duration\": \"P1D\"}";
+
+  private void create(String merchant, String description) throws Exception {
+    mockMvc.perform(as(merchant, post("/offers")).contentType(MediaType.APPLICATION_JSON)
+        .content(String.format(OFFER, description)))
+        .andExpect(status().isCreated());
+  }
+
+  private static MockHttpServletRequestBuilder as(String merchant, MockHttpServletRequestBuilder request) {
+    return request.header(HEADER, merchant);
+  }
+
+  // 1 and 3 are acme's, 2 is globex's
+  @Before
+  public void createOffers() throws Exception {
+    create("acme", "acme anvil");
+    create("globex", "globex gadget");
+    create("acme", "acme rocket");
+  }
+
+
+  @Test
+  public void listed() throws Exception {
+    mockMvc.perform(as("acme", get("/offers?count=exact")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(containsInAnyOrder("acme anvil", "acme rocket")))
+        .andExpect(jsonPath("page.totalElements").value(2));
+    mockMvc.perform(as("globex", get("/offers?count=cached")))
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("globex gadget")))
+        .andExpect(jsonPath("page.totalElements").value(1));
+    mockMvc.perform(get("/offers?projection=summary"))
+        .andExpect(jsonPath("_embedded.offers").value(empty()));
+
+    mockMvc.perform(as("globex", get("/offers/search/price?currency=GBP&min=0&max=100")))
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("globex gadget")));
+    mockMvc.perform(as("acme", get("/offers/search/text?q=gadget rocket")))
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("acme rocket")))
+        .andExpect(jsonPath("page.totalElements").value(1));
+  }
+
+  @Test
+  public void othersHidden() throws Exception {
+    mockMvc.perform(as("acme", get("/offers/2")))
+        .andExpect(status().isNotFound());
+    mockMvc.perform(as("acme", patch("/offers/2")).contentType(MediaType.APPLICATION_JSON).content("{\"cancelled\": true}"))
+        .andExpect(status().isNotFound());
+    mockMvc.perform(as("acme", delete("/offers/2")))
+        .andExpect(status().isNotFound());
+
+    mockMvc.perform(as("globex", get("/offers/2")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("description").value("globex gadget"))
+        .andExpect(jsonPath("cancelled").value(false));
+  }
+
+  @Test
+  public void putToOthersCreates() throws Exception {
+    mockMvc.perform(as("acme", put("/offers/2")).contentType(MediaType.APPLICATION_JSON)
+        .content(String.format(OFFER, "acme gadget")))
+        .andExpect(status().isCreated());
+
+    assertEquals(4, repository.count());
+    assertEquals("globex gadget", repository.findById(2L).get().getDescription());
+    mockMvc.perform(as("acme", get("/offers?count=exact")))
+        .andExpect(jsonPath("page.totalElements").value(3));
+  }
+
+  @Test
+  public void changes() throws Exception {
+    MockHttpServletResponse events = mockMvc.perform(as("globex", get("/offers/changes?after=0")))
+        .andExpect(request().asyncStarted())
+        .andReturn().getResponse();
+    create("globex", "globex widget");
+
+    for (int i = 0; i < 50 && !events.getContentAsString().contains("id:4\n"); i++) {
+      Thread.sleep(100);
+    }
+    assertThat(events.getContentAsString(), allOf(containsString("id:2\n"), containsString("id:4\n")));
+    assertThat(events.getContentAsString(), not(anyOf(containsString("id:1\n"), containsString("id:3\n"))));
+  }
+
+  @Test
+  public void invalidMerchant() throws Exception {
+    mockMvc.perform(as("not a merchant", get("/offers")))
+        .andExpect(status().isBadRequest());
+  }
+
+}
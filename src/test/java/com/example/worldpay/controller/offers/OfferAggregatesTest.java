@@ -0,0 +1,140 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static com.example.worldpay.controller.MerchantFilter.HEADER;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+    properties = "management.endpoints.web.exposure.include=offeraggregates")
+public class OfferAggregatesTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String URL = "/offers/aggregates";
+  private static final String OFFER = "{" +
+      "\"description\": \"foo\", " +
+      "\"price\": {\"currency\": \"%s\", \"value\": %s}, " +
+      "\"duration\": \"%s\"}";
+
+  private void create(String merchant, String currency, String value, String duration) throws Exception {
+    mockMvc.perform(as(merchant, post("/offers")).contentType(MediaType.APPLICATION_JSON)
+        .content(String.format(OFFER, currency, value, duration)))
+        .andExpect(status().isCreated());
+  }
+
+  private static MockHttpServletRequestBuilder as(String merchant, MockHttpServletRequestBuilder request) {
+    return request.header(HEADER, merchant);
+  }
+
+  // 1 to 3 are acme's active GBP offers, 4 is acme's in USD, 5 globex's, and 6 acme's already expired
+  @Before
+  public void createOffers() throws Exception {
+    create("acme", "GBP", "10", "P1D");
+    create("acme", "GBP", "20", "P1D");
+    create("acme", "GBP", "30", "P1D");
+    create("acme", "USD", "5.5", "P1D");
+    create("globex", "GBP", "100", "P1D");
+    create("acme", "GBP", "1", "P-1D");
+  }
+
+
+  @Test
+  public void perCurrency() throws Exception {
+    mockMvc.perform(as("acme", get(URL)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("[*].currency").value(contains("GBP", "USD")))
+        .andExpect(jsonPath("[0].active").value(3))
+        .andExpect(jsonPath("[0].min").value(10.0))
+        .andExpect(jsonPath("[0].max").value(30.0))
+        .andExpect(jsonPath("[0].average").value(20.0))
+        .andExpect(jsonPath("[1].active").value(1))
+        .andExpect(jsonPath("[1].min").value(5.5));
+    mockMvc.perform(as("globex", get(URL)))
+        .andExpect(jsonPath("[*].currency").value(contains("GBP")))
+        .andExpect(jsonPath("[0].active").value(1));
+    mockMvc.perform(as("initech", get(URL)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$").value(empty()));
+  }
+
+  @Test
+  public void updated() throws Exception {
+    mockMvc.perform(as("acme", patch("/offers/3")).contentType(MediaType.APPLICATION_JSON).content("{\"cancelled\": true}"))
+        .andExpect(status().is2xxSuccessful());
+    mockMvc.perform(as("acme", delete("/offers/1")))
+        .andExpect(status().isNoContent());
+    mockMvc.perform(as("acme", patch("/offers/4")).contentType(MediaType.APPLICATION_JSON)
+        .content("{\"price\": {\"currency\": \"GBP\", \"value\": 50}}"))
+        .andExpect(status().is2xxSuccessful());
+    mockMvc.perform(as("acme", patch("/offers/6")).contentType(MediaType.APPLICATION_JSON).content("{\"duration\": \"P1D\"}"))
+        .andExpect(status().is2xxSuccessful());
+
+    mockMvc.perform(as("acme", get(URL)))
+        .andExpect(jsonPath("[*].currency").value(contains("GBP")))
+        .andExpect(jsonPath("[0].active").value(3))
+        .andExpect(jsonPath("[0].min").value(1.0))
+        .andExpect(jsonPath("[0].max").value(50.0));
+  }
+
+  @Test
+  public void bulk() throws Exception {
+    mockMvc.perform(as("globex", post("/offers/bulk")).contentType("application/x-ndjson")
+        .content(String.format(OFFER, "GBP", "200", "P1D") + "\n" + String.format(OFFER, "EUR", "1", "P1D") + "\n"))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(as("globex", get(URL)))
+        .andExpect(jsonPath("[*].currency").value(contains("EUR", "GBP")))
+        .andExpect(jsonPath("[1].active").value(2))
+        .andExpect(jsonPath("[1].average").value(150.0));
+  }
+
+  @Test
+  public void rebuilt() throws Exception {
+    // saveAll publishes no OffersWrittenEvent, so the offer isn't counted
+    repository.saveAll(singletonList(
+        new Offer("direct", new Price(Currency.getInstance("GBP"), BigDecimal.valueOf(60)), Period.ofDays(1), false)));
+    mockMvc.perform(get(URL))
+        .andExpect(jsonPath("$").value(empty()));
+
+    mockMvc.perform(post("/actuator/offeraggregates"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$").value(6));  // acme's 4 and globex's 1 active, and the default merchant's
+    mockMvc.perform(get(URL))
+        .andExpect(jsonPath("[0].currency").value("GBP"))
+        .andExpect(jsonPath("[0].active").value(1));
+    mockMvc.perform(as("acme", get(URL)))
+        .andExpect(jsonPath("[0].active").value(3))
+        .andExpect(jsonPath("[0].average").value(20.0));
+  }
+
+}
@@ -0,0 +1,184 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.service.OfferExpirySweeper;
+import org.hamcrest.Matcher;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+    properties = {"worldpay.changes.buffer-size=2", "worldpay.changes.subscriber-queue-size=2"})
+public class OfferChangesTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  @Autowired
+  private OfferExpirySweeper sweeper;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private static final String URL = "/offers/changes";
+  private static final Currency GBP = Currency.getInstance("GBP");
+  private static final String OFFER = "{" +
+      "\"description\": \"%s\", " +
+      "\"price\": {\"currency\": \"GBP\", \"value\": 20}, " +
+      "\"duration\": \"P1D\"}";
+
+  private void create(String description) throws Exception {
+    mockMvc.perform(post("/offers").contentType(MediaType.APPLICATION_JSON).content(String.format(OFFER, description)))
+        .andExpect(status().isCreated());
+  }
+
+  private MockHttpServletResponse subscribe(RequestBuilder request) throws Exception {
+    return mockMvc.perform(request)
+        .andExpect(request().asyncStarted())
+        .andReturn().getResponse();
+  }
+
+  // events are written by another thread
+  private static void await(MockHttpServletResponse response, Matcher<String> matcher) throws Exception {
+    for (int i = 0; i < 50 && !matcher.matches(response.getContentAsString()); i++) {
+      Thread.sleep(100);
+    }
+    assertThat(response.getContentAsString(), matcher);
+  }
+
+
+  @Test
+  public void live() throws Exception {
+    MockHttpServletResponse events = subscribe(get(URL));
+
+    create("foo");
+    await(events, allOf(containsString("id:1\nevent:created\ndata:{"), containsString("\"offerId\":1")));
+
+    mockMvc.perform(patch("/offers/1").contentType(MediaType.APPLICATION_JSON).content("{\"cancelled\": true}"))
+        .andExpect(status().is2xxSuccessful());
+    await(events, containsString("id:2\nevent:updated\n"));
+
+    mockMvc.perform(delete("/offers/1"))
+        .andExpect(status().isNoContent());
+    await(events, containsString("id:3\nevent:deleted\n"));
+  }
+
+  @Test
+  public void resume() throws Exception {
+    create("foo");
+    create("bar");
+    create("baz");
+
+    // the first has already left the buffer
+    await(subscribe(get(URL + "?after=0")), stringContainsInOrder(asList("id:1\n", "id:2\n", "id:3\n")));
+
+    MockHttpServletResponse resumed = subscribe(get(URL).header("Last-Event-ID", "2"));
+    await(resumed, containsString("id:3\n"));
+    assertThat(resumed.getContentAsString(), not(containsString("id:2\n")));
+
+    create("qux");
+    await(resumed, containsString("id:4\n"));
+  }
+
+  // replayed from the outbox by merchant, and live past other merchants' changes
+  @Test
+  public void perMerchant() throws Exception {
+    mockMvc.perform(post("/offers").header("X-Merchant-Id", "acme")
+        .contentType(MediaType.APPLICATION_JSON).content(String.format(OFFER, "foo")))
+        .andExpect(status().isCreated());
+    create("bar");
+    create("baz");
+    create("qux");
+
+    MockHttpServletResponse acme = subscribe(get(URL + "?after=0").header("X-Merchant-Id", "acme"));
+    await(acme, containsString("id:1\n"));
+
+    mockMvc.perform(post("/offers").header("X-Merchant-Id", "acme")
+        .contentType(MediaType.APPLICATION_JSON).content(String.format(OFFER, "quux")))
+        .andExpect(status().isCreated());
+    await(acme, containsString("id:5\n"));
+    assertThat(acme.getContentAsString(), not(anyOf(containsString("id:2\n"), containsString("id:4\n"))));
+  }
+
+  // written in the offer's transaction, so rolled back with it
+  @Test
+  public void rolledBack() throws Exception {
+    MockHttpServletResponse events = subscribe(get(URL));
+
+    new TransactionTemplate(transactionManager).execute(status -> {
+      repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofDays(1), false));
+      status.setRollbackOnly();
+      return null;
+    });
+    create("bar");
+    await(events, containsString("id:2\nevent:created\n"));
+    assertThat(events.getContentAsString(), not(containsString("id:1\n")));
+  }
+
+  // caught up, then more than its queue of changes behind, so disconnected to resume from the outbox
+  @Test
+  public void overflow() throws Exception {
+    MvcResult subscribed = mockMvc.perform(get(URL))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    create("foo");
+    await(subscribed.getResponse(), containsString("id:1\n"));
+
+    mockMvc.perform(post("/offers/bulk").contentType(MediaType.APPLICATION_JSON)
+        .content("[" + String.format(OFFER, "bar") + ", " + String.format(OFFER, "baz") + ", " +
+            String.format(OFFER, "qux") + "]"))
+        .andExpect(status().isOk());
+    MockAsyncContext async = (MockAsyncContext) subscribed.getRequest().getAsyncContext();
+    for (int i = 0; i < 50 && async.getDispatchedPath() == null; i++) {
+      Thread.sleep(100);
+    }
+    assertNotNull(async.getDispatchedPath());  // completed
+    assertThat(subscribed.getResponse().getContentAsString(), not(containsString("id:2\n")));
+
+    MockHttpServletResponse resumed = subscribe(get(URL).header("Last-Event-ID", "1"));
+    await(resumed, stringContainsInOrder(asList("id:2\n", "id:3\n", "id:4\n")));
+  }
+
+  @Test
+  public void expired() throws Exception {
+    MockHttpServletResponse events = subscribe(get(URL));
+
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ZERO, false));
+    sweeper.sweep();
+    await(events, containsString("event:expired\n"));
+  }
+
+}
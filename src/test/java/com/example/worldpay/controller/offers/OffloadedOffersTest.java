@@ -0,0 +1,112 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static com.example.worldpay.controller.MerchantFilter.HEADER;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@ActiveProfiles("offload")
+public class OffloadedOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String OFFER = "{" +
+      "\"description\": \"%s\", " +
+      "\"price\": {\"currency\": \"GBP\", \"value\": 20}, " +
+      "\"duration\": \"P1D\"}";
+
+  // GETs are started on the request thread and finished on the offload pool
+  private ResultActions offloaded(MockHttpServletRequestBuilder request) throws Exception {
+    MvcResult started = mockMvc.perform(request)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    return mockMvc.perform(asyncDispatch(started));
+  }
+
+  @Before
+  public void createOffers() throws Exception {
+    mockMvc.perform(post("/offers").header(HEADER, "acme").contentType(MediaType.APPLICATION_JSON)
+        .content(String.format(OFFER, "acme anvil")))
+        .andExpect(status().isCreated());
+    mockMvc.perform(post("/offers").header(HEADER, "globex").contentType(MediaType.APPLICATION_JSON)
+        .content(String.format(OFFER, "globex gadget")))
+        .andExpect(status().isCreated());
+  }
+
+
+  @Test
+  public void item() throws Exception {
+    offloaded(get("/offers/1").header(HEADER, "acme"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"0\""))
+        .andExpect(jsonPath("description").value("acme anvil"));
+  }
+
+  @Test
+  public void missing() throws Exception {
+    offloaded(get("/offers/3").header(HEADER, "acme"))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void othersHidden() throws Exception {
+    offloaded(get("/offers/2").header(HEADER, "acme"))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void listed() throws Exception {
+    offloaded(get("/offers").header(HEADER, "globex"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("globex gadget")))
+        .andExpect(jsonPath("page.totalElements").value(1));
+    offloaded(get("/offers?projection=summary").header(HEADER, "acme"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("acme anvil")));
+  }
+
+  @Test
+  public void exportNotOffloaded() throws Exception {
+    mockMvc.perform(get("/offers/export").header(HEADER, "acme"))
+        .andExpect(request().asyncNotStarted())
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("acme anvil")));
+  }
+
+  @Test
+  public void writesNotOffloaded() throws Exception {
+    mockMvc.perform(patch("/offers/1").header(HEADER, "acme").contentType(MediaType.APPLICATION_JSON)
+        .content("{\"description\": \"acme rocket\"}"))
+        .andExpect(request().asyncNotStarted())
+        .andExpect(status().is2xxSuccessful());
+
+    assertEquals("acme rocket", repository.findById(1L).get().getDescription());
+  }
+
+}
@@ -0,0 +1,92 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+    properties = {"worldpay.replica.jdbc-url=jdbc:h2:mem:replica", "worldpay.replica.username=sa"})
+public class ReplicaOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  @Autowired
+  private DataSource dataSource;  // the primary, outside of a GET request
+
+  @Value("${worldpay.replica.jdbc-url}")
+  private String replicaUrl;
+
+  private static final String OFFER = "{" +
+      "\"description\": \"foo\", " +
+      "\"price\": {\"currency\": \"GBP\", \"value\": 20}, " +
+      "\"duration\": \"P1D\"}";
+
+  // what replication would do, all at once
+  private void replicate() {
+    JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "sa", ""));
+    replica.execute("DROP ALL OBJECTS");
+    new JdbcTemplate(dataSource).queryForList("SCRIPT", String.class).forEach(replica::execute);
+  }
+
+  @Before
+  public void createSchema() {
+    replicate();
+  }
+
+
+  @Test
+  public void readsFromReplica() throws Exception {
+    mockMvc.perform(post("/offers").contentType(MediaType.APPLICATION_JSON).content(OFFER))
+        .andExpect(status().isCreated());
+    assertEquals(1, repository.count());
+
+    mockMvc.perform(get("/offers/1"))
+        .andExpect(status().isNotFound());
+
+    replicate();
+    mockMvc.perform(get("/offers/1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("description").value("foo"));
+  }
+
+  @Test
+  public void writesToPrimary() throws Exception {
+    mockMvc.perform(post("/offers").contentType(MediaType.APPLICATION_JSON).content(OFFER))
+        .andExpect(status().isCreated());
+    replicate();
+
+    mockMvc.perform(patch("/offers/1").contentType(MediaType.APPLICATION_JSON).content("{\"description\": \"bar\"}"))
+        .andExpect(status().is2xxSuccessful());
+    assertEquals("bar", repository.findById(1L).get().getDescription());
+
+    mockMvc.perform(get("/offers/1"))
+        .andExpect(jsonPath("description").value("foo"));
+  }
+
+}
@@ -0,0 +1,154 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.Period;
+import java.util.Currency;
+
+import static java.time.temporal.ChronoUnit.HOURS;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class SearchOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String URL = "/offers/search/{search}";
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+  @Before
+  public void createOffers() {
+    repository.save(new Offer("active", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("cancelled", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), true));
+    repository.save(new Offer("expired", new Price(GBP, BigDecimal.ONE), Period.ofDays(0), false));
+  }
+
+
+  @Test
+  public void active() throws Exception {
+    mockMvc.perform(get(URL, "active"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(1)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("active"))
+        .andExpect(jsonPath("_embedded.offers[0]._active").value(true))
+        .andExpect(jsonPath("page.totalElements").value(1))
+    ;
+  }
+
+  @Test
+  public void expired() throws Exception {
+    mockMvc.perform(get(URL, "expired"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(1)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("expired"))
+        .andExpect(jsonPath("_embedded.offers[0]._expired").value(true))
+        .andExpect(jsonPath("page.totalElements").value(1))
+    ;
+  }
+
+  @Test
+  public void advertised() throws Exception {
+    mockMvc.perform(get("/offers/search"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_links.cancelled.href").exists())
+        .andExpect(jsonPath("_links.price.href").exists())
+        .andExpect(jsonPath("_links.created.href").exists())
+        .andExpect(jsonPath("_links.description.href").exists())
+    ;
+  }
+
+  @Test
+  public void cancelled() throws Exception {
+    mockMvc.perform(get(URL + "?cancelled=true", "cancelled"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(1)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("cancelled"))
+        .andExpect(jsonPath("page.totalElements").value(1))
+    ;
+    mockMvc.perform(get(URL + "?cancelled=false", "cancelled"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(2)))
+    ;
+  }
+
+  @Test
+  public void price() throws Exception {
+    repository.save(new Offer("pricey", new Price(GBP, new BigDecimal("50")), Period.ofMonths(3), false));
+    repository.save(new Offer("dollars", new Price(Currency.getInstance("USD"), BigDecimal.TEN), Period.ofMonths(3), false));
+    repository.save(new Offer("ten", new Price(GBP, BigDecimal.TEN), Period.ofMonths(3), false));
+
+    mockMvc.perform(get(URL + "?currency=GBP&min=5&max=20", "price"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(1)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("ten"))
+    ;
+    mockMvc.perform(get(URL + "?currency=GBP&min=1&max=50&sort=price.value,desc&size=2", "price"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("pricey", "ten")))
+        .andExpect(jsonPath("page.totalElements").value(5))
+    ;
+  }
+
+  @Test
+  public void created() throws Exception {
+    Instant now = Instant.now();
+    mockMvc.perform(get(URL + "?from={from}&to={to}", "created", now.minus(1, HOURS), now.plus(1, HOURS)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(3)))
+    ;
+    mockMvc.perform(get(URL + "?from={from}&to={to}", "created", now.plus(1, HOURS), now.plus(2, HOURS)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("page.totalElements").value(0))
+    ;
+  }
+
+  @Test
+  public void description() throws Exception {
+    repository.save(new Offer("Exported 100%", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+
+    mockMvc.perform(get(URL + "?prefix=EXP&sort=description", "description"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("Exported 100%", "expired")))
+    ;
+    mockMvc.perform(get(URL + "?prefix={prefix}", "description", "exported 1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("Exported 100%")))
+    ;
+    mockMvc.perform(get(URL + "?prefix=%", "description"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("page.totalElements").value(0))
+    ;
+    mockMvc.perform(get(URL + "?prefix=exp_rted", "description"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("page.totalElements").value(0))
+    ;
+    mockMvc.perform(get(URL, "description"))
+        .andExpect(status().isBadRequest());
+  }
+
+}
@@ -0,0 +1,118 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class SeekOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String URL = "/offers/search/seek";
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+  @Before
+  public void createOffers() {
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(GBP, BigDecimal.TEN), Period.ofDays(14), true));
+    repository.save(new Offer("baz", new Price(GBP, BigDecimal.ONE), Period.ofDays(7), false));
+  }
+
+
+  @Test
+  public void advertised() throws Exception {
+    mockMvc.perform(get("/offers/search"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_links.seek.href").value(startsWith("http://localhost" + URL)))
+        .andExpect(jsonPath("_links.active.href").exists())
+    ;
+  }
+
+  @Test
+  public void all() throws Exception {
+    mockMvc.perform(get(URL))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(3)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("foo"))
+        .andExpect(jsonPath("_embedded.offers[2].description").value("baz"))
+        .andExpect(jsonPath("_embedded.offers[0]._links.self.href").value("http://localhost/offers/1"))
+        .andExpect(jsonPath("_links.next").doesNotExist())
+        .andExpect(jsonPath("_links.prev").doesNotExist())
+        .andExpect(jsonPath("page").doesNotExist())
+    ;
+  }
+
+  @Test
+  public void forwardsAndBack() throws Exception {
+    String next = JsonPath.read(mockMvc.perform(get(URL + "?size=2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(2)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("foo"))
+        .andExpect(jsonPath("_embedded.offers[1].description").value("bar"))
+        .andExpect(jsonPath("_links.prev").doesNotExist())
+        .andExpect(jsonPath("_links.next.href").value(allOf(
+            startsWith("http://localhost" + URL + "?"),
+            containsString("size=2"),
+            containsString("cursor=")
+        )))
+        .andReturn().getResponse().getContentAsString(), "_links.next.href");
+
+    String prev = JsonPath.read(mockMvc.perform(get(next))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(1)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("baz"))
+        .andExpect(jsonPath("_links.next").doesNotExist())
+        .andExpect(jsonPath("_links.prev.href").value(containsString("cursor=")))
+        .andReturn().getResponse().getContentAsString(), "_links.prev.href");
+
+    mockMvc.perform(get(prev))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(2)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("foo"))
+        .andExpect(jsonPath("_embedded.offers[1].description").value("bar"))
+        .andExpect(jsonPath("_links.prev").doesNotExist())
+        .andExpect(jsonPath("_links.next.href").value(containsString("cursor=")))
+    ;
+  }
+
+  @Test
+  public void badCursor() throws Exception {
+    mockMvc.perform(get(URL + "?cursor=nonsense"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void cursorOutOfRange() throws Exception {
+    mockMvc.perform(get(URL + "?cursor=YTo5MjIzMzcyMDM2ODU0Nzc1ODA3OjA6MQ"))  // a:9223372036854775807:0:1
+        .andExpect(status().isBadRequest());
+  }
+
+}
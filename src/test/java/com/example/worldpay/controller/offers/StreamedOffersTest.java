@@ -0,0 +1,159 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static com.example.worldpay.controller.CompactHttpMessageConverter.COMPACT_JSON_VALUE;
+import static com.example.worldpay.controller.MerchantFilter.HEADER;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// pages of more than one offer are streamed here, so these should look just like those in ListOffersTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = "worldpay.paging.stream-above=1")
+public class StreamedOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String URL = "/offers";
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+  @Before
+  public void createOffers() {
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(GBP, BigDecimal.TEN), Period.ofDays(14), true));
+    repository.save(new Offer("baz", new Price(GBP, BigDecimal.ONE), Period.ofDays(1), false));
+  }
+
+
+  @Test
+  public void exactFirstPage() throws Exception {
+    mockMvc.perform(get(URL + "?size=2&count=exact"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaTypes.HAL_JSON))
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(2)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("foo"))
+        .andExpect(jsonPath("_embedded.offers[0].price.value").value(1.00))
+        .andExpect(jsonPath("_embedded.offers[0]._active").value(true))
+        .andExpect(jsonPath("_embedded.offers[0]._links.self.href").value("http://localhost/offers/1"))
+        .andExpect(jsonPath("_embedded.offers[1].cancelled").value(true))
+        .andExpect(jsonPath("_links.prev").doesNotExist())
+        .andExpect(jsonPath("_links.next.href").value(allOf(
+            startsWith("http://localhost/offers?"),
+            containsString("size=2"),
+            containsString("page=1")
+        )))
+        .andExpect(jsonPath("page.size").value(2))
+        .andExpect(jsonPath("page.totalElements").value(3))
+        .andExpect(jsonPath("page.totalPages").value(2))
+        .andExpect(jsonPath("page.number").value(0))
+    ;
+  }
+
+  @Test
+  public void exactEmptyPage() throws Exception {
+    mockMvc.perform(get(URL + "?size=2&page=5&count=exact"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").isArray())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(0)))
+        .andExpect(jsonPath("page.totalElements").value(3))
+        .andExpect(jsonPath("page.number").value(5))
+    ;
+  }
+
+  @Test
+  public void uncountedLastPage() throws Exception {
+    mockMvc.perform(get(URL + "?size=2&page=1&count=none"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(1)))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("baz"))
+        .andExpect(jsonPath("_links.next").doesNotExist())
+        .andExpect(jsonPath("_links.prev.href").value(allOf(containsString("count=none"), containsString("page=0"))))
+        .andExpect(jsonPath("page.size").value(2))
+        .andExpect(jsonPath("page.number").value(1))
+        .andExpect(jsonPath("page.totalElements").doesNotExist())
+    ;
+  }
+
+  @Test
+  public void cachedCount() throws Exception {
+    mockMvc.perform(get(URL + "?size=2&count=cached"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(2)))
+        .andExpect(jsonPath("_links.next.href").value(containsString("page=1")))
+        .andExpect(jsonPath("page.totalElements").value(3))
+        .andExpect(jsonPath("page.totalPages").value(2))
+    ;
+  }
+
+  @Test
+  public void sorted() throws Exception {
+    mockMvc.perform(get(URL + "?size=2&count=none&sort=description"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("bar", "baz")))
+        .andExpect(jsonPath("_links.next.href").value(containsString("page=1")))
+    ;
+  }
+
+  @Test
+  public void merchants() throws Exception {
+    mockMvc.perform(get(URL + "?size=2&count=exact").header(HEADER, "acme"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(0)))
+        .andExpect(jsonPath("page.totalElements").value(0))
+    ;
+  }
+
+  // only HAL and JSON are streamed, anything else is rendered as usual
+  @Test
+  public void compact() throws Exception {
+    mockMvc.perform(get(URL + "?size=2&count=exact").accept(COMPACT_JSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(COMPACT_JSON_VALUE))
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(2)))
+        .andExpect(jsonPath("_links").doesNotExist())
+    ;
+  }
+
+  // left to Spring MVC to reject, rather than failing while choosing whether to stream
+  @Test
+  public void malformedAccept() throws Exception {
+    mockMvc.perform(get(URL + "?size=2&count=exact").header(HttpHeaders.ACCEPT, "application/hal+json;q=x, /"))
+        .andExpect(status().is4xxClientError())
+    ;
+  }
+
+  @Test
+  public void maxPageSize() throws Exception {
+    mockMvc.perform(get(URL + "?size=100000&count=none"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(hasSize(3)))
+        .andExpect(jsonPath("page.size").value(500))
+    ;
+  }
+
+}
@@ -0,0 +1,118 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+public class SummaryOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  private static final String URL = "/offers?projection=summary";
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+  @Before
+  public void createOffers() {
+    repository.save(new Offer("foo", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false));
+    repository.save(new Offer("bar", new Price(GBP, BigDecimal.TEN), Period.ofDays(14), true));
+    repository.save(new Offer("baz", new Price(GBP, BigDecimal.ONE), Period.ZERO, false));
+  }
+
+
+  @Test
+  public void sameAsEntities() throws Exception {
+    String entities = mockMvc.perform(get("/offers?count=none"))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    String summaries = mockMvc.perform(get(URL))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaTypes.HAL_JSON))
+        .andReturn().getResponse().getContentAsString();
+
+    assertEquals(JsonPath.<Object>read(entities, "_embedded"), JsonPath.read(summaries, "_embedded"));
+    assertEquals(JsonPath.<Object>read(entities, "page"), JsonPath.read(summaries, "page"));
+  }
+
+  @Test
+  public void paged() throws Exception {
+    mockMvc.perform(get(URL + "&size=2&sort=description"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("bar", "baz")))
+        .andExpect(jsonPath("_embedded.offers[0]._active").value(false))
+        .andExpect(jsonPath("_embedded.offers[1]._expired").value(true))
+        .andExpect(jsonPath("_links.self.href").value(containsString("projection=summary")))
+        .andExpect(jsonPath("_links.next.href").value(allOf(containsString("projection=summary"), containsString("page=1"))))
+        .andExpect(jsonPath("_links.prev").doesNotExist())
+        .andExpect(jsonPath("page.totalElements").doesNotExist())
+    ;
+    mockMvc.perform(get(URL + "&size=2&page=1&sort=description&count=exact"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("foo")))
+        .andExpect(jsonPath("_links.next").doesNotExist())
+        .andExpect(jsonPath("_links.prev.href").value(containsString("page=0")))
+    ;
+  }
+
+  @Test
+  public void newVersion() throws Exception {
+    mockMvc.perform(get(URL))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("foo"));
+
+    mockMvc.perform(patch("/offers/1").contentType(MediaType.APPLICATION_JSON).content("{\"description\": \"qux\"}"))
+        .andExpect(status().is2xxSuccessful());
+
+    mockMvc.perform(get(URL))
+        .andExpect(jsonPath("_embedded.offers[0].description").value("qux"));
+  }
+
+  @Test
+  public void notAcceptable() throws Exception {
+    mockMvc.perform(get(URL).accept("application/cbor"))
+        .andExpect(status().isNotAcceptable());
+    mockMvc.perform(get(URL).accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void noOffers() throws Exception {
+    repository.deleteAll();
+
+    mockMvc.perform(get(URL))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").value(empty()));
+  }
+
+}
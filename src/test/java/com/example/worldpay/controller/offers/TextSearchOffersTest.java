@@ -0,0 +1,150 @@
+package com.example.worldpay.controller.offers;
+
+import com.example.worldpay.model.Offer;
+import com.example.worldpay.model.Price;
+import com.example.worldpay.repository.OffersRepository;
+import com.example.worldpay.service.OfferTextIndex;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.Currency;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = AFTER_EACH_TEST_METHOD)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = "worldpay.bulk.batch-size=2")
+public class TextSearchOffersTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired  // mocking the repo (with @MockBean) disables generation of the controller
+  private OffersRepository repository;
+
+  @Autowired
+  private OfferTextIndex textIndex;
+
+  private static final String URL = "/offers/search/text?q={q}";
+  private static final Currency GBP = Currency.getInstance("GBP");
+  private static final String OFFER = "{" +
+      "\"description\": \"%s\", " +
+      "\"price\": {\"currency\": \"GBP\", \"value\": 20}, " +
+      "\"duration\": \"P1D\"}";
+
+  private void create(String description) throws Exception {
+    mockMvc.perform(post("/offers").contentType(MediaType.APPLICATION_JSON).content(String.format(OFFER, description)))
+        .andExpect(status().isCreated());
+  }
+
+
+  @Test
+  public void advertised() throws Exception {
+    mockMvc.perform(get("/offers/search"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_links.text.href").value(startsWith("http://localhost/offers/search/text")))
+    ;
+  }
+
+  @Test
+  public void ranked() throws Exception {
+    create("Red wine, red grapes");
+    create("Red roses");
+    create("White wine");
+    create("Something else");
+
+    mockMvc.perform(get(URL, "RED wine"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains(
+            "Red wine, red grapes", "Red roses", "White wine")))
+        .andExpect(jsonPath("page.totalElements").value(3))
+    ;
+    mockMvc.perform(get(URL + "&size=1&page=1", "red wine"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("Red roses")))
+        .andExpect(jsonPath("page.totalElements").value(3))
+    ;
+    mockMvc.perform(get(URL, "roses"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("Red roses")))
+    ;
+  }
+
+  @Test
+  public void noMatch() throws Exception {
+    create("Red roses");
+
+    mockMvc.perform(get(URL, "tulips"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("_embedded.offers").isEmpty())
+        .andExpect(jsonPath("page.totalElements").value(0))
+    ;
+    mockMvc.perform(get(URL, " - "))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("page.totalElements").value(0))
+    ;
+    mockMvc.perform(get("/offers/search/text"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void updatedAndDeleted() throws Exception {
+    create("Red roses");
+
+    mockMvc.perform(patch("/offers/1").contentType(MediaType.APPLICATION_JSON).content("{\"description\": \"Tulips\"}"))
+        .andExpect(status().is2xxSuccessful());
+    mockMvc.perform(get(URL, "roses"))
+        .andExpect(jsonPath("page.totalElements").value(0));
+    mockMvc.perform(get(URL, "tulips"))
+        .andExpect(jsonPath("page.totalElements").value(1));
+
+    mockMvc.perform(delete("/offers/1"))
+        .andExpect(status().isNoContent());
+    mockMvc.perform(get(URL, "tulips"))
+        .andExpect(jsonPath("page.totalElements").value(0));
+  }
+
+  @Test
+  public void bulk() throws Exception {
+    mockMvc.perform(post("/offers/bulk")
+        .contentType("application/x-ndjson")
+        .content(String.format(OFFER, "Red roses") + "\n" + String.format(OFFER, "White roses") + "\n"))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get(URL, "roses"))
+        .andExpect(jsonPath("page.totalElements").value(2));
+  }
+
+  @Test
+  public void rebuild() throws Exception {
+    // saveAll publishes no OffersWrittenEvent, so the offers aren't indexed
+    repository.saveAll(asList(
+        new Offer("Red roses", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false),
+        new Offer("White roses", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false),
+        new Offer("Roses, roses", new Price(GBP, BigDecimal.ONE), Period.ofMonths(3), false)));
+    mockMvc.perform(get(URL, "roses"))
+        .andExpect(jsonPath("page.totalElements").value(0));
+
+    assertEquals(3, textIndex.rebuild());  // in two batches
+    mockMvc.perform(get(URL, "red roses"))
+        .andExpect(jsonPath("_embedded.offers[*].description").value(contains("Red roses", "Roses, roses", "White roses")));
+  }
+
+}